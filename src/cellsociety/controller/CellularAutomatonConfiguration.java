@@ -21,7 +21,6 @@ import cellsociety.model.grids.*;
  * @author Patrick Liu
  */
 public class CellularAutomatonConfiguration {
-
   private CellularAutomatonRule ruleSet;
   private CellGrid grid;
   private Map<String, String> simulationMetadata;
@@ -30,10 +29,16 @@ public class CellularAutomatonConfiguration {
   private int gridHeight;
   private int gridNeighbors;
   private boolean gridWrapping;
+  private String gridStorage;
+  private String gridOrder;
+  private int gridTileSize;
   private Map<String, Color> cellStyles;
   private Map<String, String> simulationParameters;
   private List<List<String>> initialStates;
   private String simulationType;
+  private int threadCount;
+  private String stepping;
+  private long seed;
 
   /**
    * Stores relevant information given any XML file
@@ -50,22 +55,29 @@ public class CellularAutomatonConfiguration {
     gridHeight = docParser.getGridHeight();
     gridNeighbors = docParser.getGridNeighbors();
     gridWrapping = docParser.getGridWrapping();
+    gridStorage = docParser.getGridStorage();
+    gridOrder = docParser.getGridOrder();
+    gridTileSize = docParser.getGridTileSize();
     cellStyles = docParser.getCellStyles();
     simulationParameters = docParser.getParameters();
     initialStates = docParser.getInitialStates();
     gridType = docParser.getGridType();
     simulationType = docParser.getSimulationType();
+    threadCount = docParser.getThreadCount();
+    stepping = docParser.getStepping();
+    seed = docParser.getSeed();
     makeGrid(simulationType, gridType, initialStates);
     makeRules(simulationType, simulationParameters);
+    if (grid instanceof SparseTiledCellGrid && ! ((SparseTiledCellGrid) grid).supports(ruleSet)) {
+      throw new XMLException(new IllegalArgumentException(),
+          simulationType + " cannot run on a sparse grid");
+    }
   }
 
-  // returns subclass of CellState using reflection
+  // returns subclass of CellState, shared if possible
   private CellState makeState(String simulationType, String contents) {
     try {
-      return cellsociety.model.states.Index.allStates
-          .get(simulationType)
-          .getConstructor(String.class)
-          .newInstance(contents);
+      return CellState.valueOf(cellsociety.model.states.Index.allStates.get(simulationType), contents);
     } catch(Exception e) {
       return null;
     }
@@ -83,40 +95,103 @@ public class CellularAutomatonConfiguration {
     }
   }
 
+  // states are kept in primitive planes whenever the state type allows it,
+  // unless the configuration file explicitly asks for one Cell per location;
+  // planes are only kept off the heap when asked for
+  private Dense2DCellGrid.Storage getStorage(String simulationType) throws XMLException {
+    boolean enumOnly = CellState.isEnumOnly(cellsociety.model.states.Index.allStates.get(simulationType));
+    if ((gridStorage.equals("planes") || gridStorage.equals("offheap")) && !enumOnly) {
+      throw new XMLException(new IllegalArgumentException(),
+          simulationType + " states cannot be stored in planes");
+    }
+    if (gridStorage.equals("offheap")) {
+      if (gridTileSize > 0 || gridOrder.equals("zorder")) {
+        throw new XMLException(new IllegalArgumentException(),
+            "Off-heap grids cannot be tiled or use Z-order");
+      }
+      return Dense2DCellGrid.Storage.OFF_HEAP;
+    }
+    if (enumOnly && !gridStorage.equals("cells")) {
+      return Dense2DCellGrid.Storage.PLANES;
+    }
+    return Dense2DCellGrid.Storage.CELLS;
+  }
+
+  // cells are kept in Z-order only when the configuration file asks for it
+  private boolean useZOrder() throws XMLException {
+    if (gridOrder.equals("zorder") && gridTileSize > 0) {
+      throw new XMLException(new IllegalArgumentException(), "Tiled grids cannot use Z-order");
+    }
+    return gridOrder.equals("zorder");
+  }
+
   // initialize grid using values read in from configuration file
   private void makeGrid(String simulationType, String gridType, List<List<String>> initialStates) throws XMLException {
+    // read in initial states
+    CellState initialState[][] = new CellState[gridHeight][gridWidth];
+    for(int y = 0; y < gridHeight; y++) {
+      for(int x = 0; x < gridWidth; x++ ) {
+        CellState state = makeState(simulationType, initialStates.get(y).get(x));
+        if (state != null && getCellStyles().containsKey(initialStates.get(y).get(x))) {
+          initialState[y][x] = state;
+        }
+        else {
+          throw new XMLException(new IllegalArgumentException(), "Invalid cell state");
+        }
+      }
+    }
+
     switch(gridType) {
       case "rectangular":
       case "hexagonal":
         Dense2DCellGrid denseGrid = null;
+        Dense2DCellGrid.Storage storage = getStorage(simulationType);
 
         if(gridType.equals("rectangular"))
-          denseGrid = new RectangularCellGrid(gridWidth, gridHeight, gridWrapping, gridNeighbors);
+          denseGrid = new RectangularCellGrid(gridWidth, gridHeight, gridWrapping, gridNeighbors, storage);
         else if(gridType.equals("hexagonal"))
-          denseGrid = new HexagonalCellGrid(gridWidth, gridHeight, gridWrapping);
-
-        // populate our new grid
-        CellState initialState[][] = new CellState[gridHeight][gridWidth];
-        for(int y = 0; y < gridHeight; y++) {
-          for(int x = 0; x < gridWidth; x++ ) {
-            CellState state = makeState(simulationType, initialStates.get(y).get(x));
-            if (state != null && getCellStyles().containsKey(initialStates.get(y).get(x))) {
-              initialState[y][x] = state;
-            }
-            else {
-              throw new XMLException(new IllegalArgumentException(), "Invalid cell state");
-            }
-          }
+          denseGrid = new HexagonalCellGrid(gridWidth, gridHeight, gridWrapping, storage);
+
+        if(gridTileSize > 0) {
+          if(storage != Dense2DCellGrid.Storage.PLANES)
+            throw new XMLException(new IllegalArgumentException(), "Tiled grids must use plane storage");
+          denseGrid.setTileSize(gridTileSize);
         }
+        if(useZOrder())
+          denseGrid.setZOrder(true);
 
         denseGrid.appendStates(initialState);
 
         grid = denseGrid;
 
+        break;
+      case "sparse":
+        if(gridWrapping)
+          throw new XMLException(new IllegalArgumentException(), "Sparse grids cannot wrap");
+
+        SparseTiledCellGrid sparseGrid = new SparseTiledCellGrid(gridWidth, gridHeight, gridNeighbors,
+            makeBackgroundState(simulationType));
+        sparseGrid.appendStates(initialState);
+
+        grid = sparseGrid;
+
         break;
     }
   }
 
+  // returns the default state of a simulation, which fills the space
+  // around the initial states of a sparse grid
+  private CellState makeBackgroundState(String simulationType) throws XMLException {
+    try {
+      CellState state = cellsociety.model.states.Index.allStates.get(simulationType)
+          .getConstructor()
+          .newInstance();
+      return CellState.valueOf(state.getClass(), state.toString());
+    } catch(Exception e) {
+      throw new XMLException(e);
+    }
+  }
+
   /**
    * Returns the rule set
    * @return - a subclass of CellularAutomatonRule for the specified simulation
@@ -192,6 +267,31 @@ public class CellularAutomatonConfiguration {
     return simulationType;
   }
 
+  /**
+   * Returns the number of threads the simulation should be stepped on
+   * @return - thread count, at least 1
+   */
+  public int getThreadCount() {
+    return threadCount;
+  }
+
+  /**
+   * Returns the seed of the simulation's random numbers
+   * @return - seed given in the configuration file, or one drawn at random
+   */
+  public long getSeed() {
+    return seed;
+  }
+
+  /**
+   * Returns how the simulation should be stepped
+   * @return - "full" to evaluate every cell each generation, or "active" to only evaluate
+   * cells near the previous generation's changes
+   */
+  public String getStepping() {
+    return stepping;
+  }
+
   /**
    * Returns read-only map of the simulation-specific parameters
    * @return - unmodifiable map of parameter names and values
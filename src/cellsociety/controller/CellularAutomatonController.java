@@ -1,10 +1,11 @@
 package cellsociety.controller;
 
 import cellsociety.controller.CellularAutomatonConfiguration;
+import cellsociety.model.Cell;
+import cellsociety.model.CellGrid;
 import cellsociety.model.CellState;
 import cellsociety.model.CellularAutomaton;
 import cellsociety.model.CellularAutomatonRule;
-import cellsociety.model.GridCoordinates;
 import cellsociety.model.grids.Dense2DCellGrid;
 import cellsociety.view.SimulationView;
 import cellsociety.xml.XMLConfigurationParser;
@@ -15,41 +16,45 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import javafx.animation.KeyFrame;
-import javafx.animation.Timeline;
+import java.util.concurrent.atomic.AtomicReference;
+import javafx.application.Platform;
 import javafx.scene.layout.GridPane;
 import javafx.stage.DirectoryChooser;
-import javafx.util.Duration;
 
 /**
  * This class initializes a CellularAutomatonConfiguration object that stores all relevant
  * properties of the simulation, and then initializes an appropriate Model and View object. This
  * class also runs steps of the simulation.
  *
+ * Each simulation is stepped on its own thread by a SimulationLoop, which is the only thread that
+ * touches the Model: user actions are submitted to it as commands. Finished generations are handed
+ * to the JavaFX application thread, which only renders them; if it falls behind, it skips to the
+ * latest generation rather than queueing up the ones in between.
+ *
  * @author Patrick Liu
  */
 public class CellularAutomatonController {
 
   protected static final double[] STEP_SIZES = {1.0, 1.0 / 5, 1.0 / 10, 1.0 / 20, 1.0 / 60};
 
-  private Timeline animation;
-  private KeyFrame frame;
+  private SimulationLoop loop;
   private CellularAutomaton myModel;
   private SimulationView mySimulationView;
   private File currentConfigFile;
   private List<List<String>> currentStates;
   private CellularAutomatonConfiguration config;
 
+  // latest generation not yet rendered, or null if there is none
+  private final AtomicReference<List<List<String>>> pendingStates = new AtomicReference<>();
+
   /**
-   * Initializes JavaFX animation
+   * Starts the (paused) thread the simulation is stepped on
    */
   public CellularAutomatonController() {
-    frame = new KeyFrame(Duration.seconds(STEP_SIZES[2]), e -> step());
-    animation = new Timeline();
-    animation.setCycleCount(Timeline.INDEFINITE);
-    animation.getKeyFrames().add(frame);
+    loop = new SimulationLoop("simulation", this::step, STEP_SIZES[2], this::reportFailure);
   }
 
   /**
@@ -67,7 +72,7 @@ public class CellularAutomatonController {
     try {
       config = new CellularAutomatonConfiguration(configFile);
       currentStates = config.getInitialStates();
-      myModel = new CellularAutomaton(config.getGrid(), config.getRuleSet());
+      myModel = makeModel();
     }
     catch (Exception e) {
       mySimulationView.makeAlert("Invalid XML file");
@@ -103,35 +108,27 @@ public class CellularAutomatonController {
   }
 
   /**
-   * Starts or resumes the simulation by resuming the Timeline object
+   * Starts or resumes the simulation
    */
   public void playSimulation() {
-    animation.play();
+    loop.play();
   }
 
   /**
-   * Pauses the simulation by pausing the Timeline object
+   * Pauses the simulation; a generation already being computed is still shown
    */
   public void pauseSimulation() {
-    animation.pause();
-  }
-
-  // replaces the current KeyFrame object in order to change the animation rate
-  private void changeAnimationRate(double rate) {
-    frame = new KeyFrame(Duration.seconds(rate), e -> step());
-    animation.stop();
-    animation.getKeyFrames().clear();
-    animation.getKeyFrames().add(frame);
-    animation.play();
+    loop.pause();
   }
 
   /**
-   * Changes the animation rate based on a five-position slider
+   * Changes the animation rate based on a five-position slider, and resumes the simulation
    *
    * @param sliderPos - the new position of the slider
    */
   public void changeRateSlider(int sliderPos) {
-    changeAnimationRate(STEP_SIZES[sliderPos - 1]);
+    loop.setPeriod(STEP_SIZES[sliderPos - 1]);
+    loop.play();
   }
 
   /**
@@ -139,7 +136,21 @@ public class CellularAutomatonController {
    */
   public void stepOnce() {
     pauseSimulation();
-    step();
+    loop.submit(this::step);
+  }
+
+  /**
+   * Pauses the simulation and advances it by several generations at
+   * once, updating the view only at the end
+   *
+   * @param generations - number of generations to advance
+   */
+  public void fastForward(int generations) {
+    pauseSimulation();
+    loop.submit(() -> {
+      myModel.step(generations);
+      publish();
+    });
   }
 
   /**
@@ -148,26 +159,91 @@ public class CellularAutomatonController {
    */
   public void resetSimulation() {
     pauseSimulation();
-    config = new CellularAutomatonConfiguration(currentConfigFile);
-    myModel = new CellularAutomaton(config.getGrid(), config.getRuleSet());
-    mySimulationView.updateView(config.getInitialStates());
+    CellularAutomatonConfiguration newConfig = new CellularAutomatonConfiguration(currentConfigFile);
+    loop.submit(() -> {
+      // free an off-heap grid before its replacement is allocated
+      discardModel();
+      config = newConfig;
+      myModel = makeModel();
+      publish();
+    });
+  }
+
+  /**
+   * Stops the simulation for good, once the generation being computed is done, and frees the
+   * threads and memory of its Model
+   */
+  public void close() {
+    loop.shutdown(this::discardModel);
+  }
+
+  // frees the threads and any off-heap grid of the current Model (on the simulation's thread)
+  private void discardModel() {
+    if (myModel == null) {
+      return;
+    }
+    myModel.close();
+    if (myModel.getGrid() instanceof Dense2DCellGrid) {
+      ((Dense2DCellGrid) myModel.getGrid()).release();
+    }
+    myModel = null;
   }
 
-  // updates the Model, then uses the updated grid to update the View
+  // tells the user that the simulation failed, and stopped (on the simulation's thread)
+  private void reportFailure(Throwable e) {
+    String message = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+    Platform.runLater(() -> mySimulationView.makeAlert("Simulation stopped: " + message));
+  }
+
+  // creates a Model from the current configuration
+  private CellularAutomaton makeModel() {
+    CellularAutomaton model = new CellularAutomaton(config.getGrid(), config.getRuleSet());
+    model.setThreadCount(config.getThreadCount());
+    model.setSeed(config.getSeed());
+    model.setActiveRegionStepping(config.getStepping().equals("active"));
+    // engines step the whole grid on the calling thread, so they would
+    // override the "threads" and "stepping" attributes
+    if (config.getThreadCount() == 1 && !config.getStepping().equals("active")) {
+      model.setEngine(cellsociety.model.engines.Index.select(model.getGrid(), config.getRuleSet()));
+    }
+    return model;
+  }
+
+  // updates the Model, then hands the updated grid to the View (on the simulation's thread)
   private void step() {
     myModel.step();
-    CellState[][] currentState = ((Dense2DCellGrid) myModel.getGrid()).extractStates(0);
-    setCurrentStates(currentState);
-    mySimulationView.updateView(currentStates);
+    publish();
   }
 
-  // helper method to update the ArrayList instance variable given a 2D array
-  private void setCurrentStates(CellState[][] currentState) {
-    for (int row = 0; row < currentState.length; row++) {
-      for (int col = 0; col < currentState[0].length; col++) {
-        currentStates.get(row).set(col, currentState[row][col].toString());
+  // hands the current grid to the View, to be rendered on the JavaFX application thread
+  // (on the simulation's thread)
+  private void publish() {
+    if (pendingStates.getAndSet(toStateNames(myModel.getGrid().extractStates(0))) == null) {
+      Platform.runLater(this::render);
+    }
+  }
+
+  // shows the latest published generation (on the JavaFX application thread)
+  private void render() {
+    List<List<String>> states = pendingStates.getAndSet(null);
+    if (states != null) {
+      currentStates = states;
+      mySimulationView.updateView(currentStates);
+    }
+  }
+
+  // helper method to build a fresh list of state names given a 2D array, so that the View never
+  // sees a list the simulation's thread is still writing
+  private static List<List<String>> toStateNames(CellState[][] currentState) {
+    List<List<String>> names = new ArrayList<>(currentState.length);
+    for (CellState[] stateRow : currentState) {
+      List<String> row = new ArrayList<>(stateRow.length);
+      for (CellState state : stateRow) {
+        row.add(state.toString());
       }
+      names.add(row);
     }
+    return names;
   }
 
   // helper method to save new config file by editing a copy of the original
@@ -182,9 +258,11 @@ public class CellularAutomatonController {
    * @param parameterList - map of updated parameter names and values
    */
   public void updateParameters(Map<String, String> parameterList) {
-    CellularAutomatonRule ruleSet = config.getRuleSet();
-    ruleSet.setGameSpecifics(parameterList);
-    myModel.setRule(ruleSet);
+    loop.submit(() -> {
+      CellularAutomatonRule ruleSet = config.getRuleSet();
+      ruleSet.setGameSpecifics(parameterList);
+      myModel.setRule(ruleSet);
+    });
   }
 
   /**
@@ -194,14 +272,20 @@ public class CellularAutomatonController {
    * @param yLocation - the y coordinate of the Cell
    */
   public void changeCell(String state, int xLocation, int yLocation) {
-    try {
-      myModel.getGrid().getCell(new GridCoordinates(xLocation, yLocation)).setState(0,
-          cellsociety.model.states.Index.allStates.get(config.getSimulationType())
-              .getConstructor(String.class).newInstance(state));
-      setCurrentStates(((Dense2DCellGrid) myModel.getGrid()).extractStates(0));
-      mySimulationView.updateView(currentStates);
-    } catch (Exception ignored) {
+    loop.submit(() -> {
+      try {
+        CellGrid grid = myModel.getGrid();
+        long index = grid.indexOf(xLocation, yLocation);
+        if (index == CellGrid.NO_CELL) {
+          return;
+        }
+        grid.setStateAt(index, Cell.CURRENT_TIME,
+            CellState.valueOf(cellsociety.model.states.Index.allStates.get(config.getSimulationType()), state));
+        myModel.invalidate();
+        publish();
+      } catch (Exception ignored) {
 
-    }
+      }
+    });
   }
 }
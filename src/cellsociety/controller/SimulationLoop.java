@@ -0,0 +1,237 @@
+package cellsociety.controller;
+
+import java.lang.reflect.Method;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Runs one simulation on a thread of its own: while playing, calls a
+ * step action once per period, and in between runs commands submitted
+ * from other threads (such as the JavaFX application thread), so that
+ * the simulation is only ever touched by its own thread.
+ *
+ * Where the JVM supports them (Java 21 on), the thread is a virtual
+ * thread, so that hundreds of simulations, which spend most of their
+ * time waiting for their next generation, share a few carrier threads.
+ * Otherwise it is an ordinary daemon thread. The loop waits on a
+ * java.util.concurrent lock rather than a monitor, which a virtual
+ * thread can wait on without holding on to its carrier.
+ *
+ * If a generation or command fails, by throwing any exception or
+ * Error (such as an OutOfMemoryError while allocating a large grid),
+ * the loop pauses and hands what was thrown to a failure handler, on
+ * its own thread; it keeps taking commands, so that the simulation can
+ * still be reset.
+ *
+ * @author Franklin Wei
+ */
+public class SimulationLoop {
+  private static final Method OF_VIRTUAL;
+  private static final Method BUILDER_NAME;
+  private static final Method BUILDER_START;
+
+  static {
+    Method ofVirtual = null;
+    Method builderName = null;
+    Method builderStart = null;
+    try {
+      Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+      ofVirtual = Thread.class.getMethod("ofVirtual");
+      builderName = builderClass.getMethod("name", String.class);
+      builderStart = builderClass.getMethod("start", Runnable.class);
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      ofVirtual = null;
+    }
+    OF_VIRTUAL = ofVirtual;
+    BUILDER_NAME = builderName;
+    BUILDER_START = builderStart;
+  }
+
+  private final Runnable step;
+  private final Consumer<Throwable> failureHandler;
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition wakeup = lock.newCondition();
+
+  // guarded by lock
+  private final Queue<Runnable> commands = new ArrayDeque<>();
+  private boolean playing, shutdown;
+  private Runnable lastCommand;
+  private long periodNanos;
+  private long nextStep;
+
+  /**
+   * Start a paused loop.
+   *
+   * @param name Thread name.
+   * @param step Action advancing the simulation by one generation.
+   * @param periodSeconds Time between generations while playing.
+   * @param failureHandler Called with whatever a failing generation
+   * or command throws.
+   */
+  public SimulationLoop(String name, Runnable step, double periodSeconds,
+      Consumer<Throwable> failureHandler) {
+    this.step = step;
+    this.failureHandler = failureHandler;
+    this.periodNanos = toNanos(periodSeconds);
+    startThread(name, this::run);
+  }
+
+  /**
+   * Start stepping, one period from now.
+   */
+  public void play() {
+    lock.lock();
+    try {
+      if (!playing) {
+        playing = true;
+        nextStep = System.nanoTime() + periodNanos;
+        wakeup.signal();
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Stop stepping. A generation already being computed is finished.
+   */
+  public void pause() {
+    lock.lock();
+    try {
+      playing = false;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Change the time between generations, counting from the last one.
+   *
+   * @param periodSeconds New period.
+   */
+  public void setPeriod(double periodSeconds) {
+    lock.lock();
+    try {
+      long period = toNanos(periodSeconds);
+      nextStep += period - periodNanos;
+      periodNanos = period;
+      wakeup.signal();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Run a command on the loop's thread, before its next generation.
+   * Commands run in the order they are submitted.
+   *
+   * @param command Command to run.
+   */
+  public void submit(Runnable command) {
+    lock.lock();
+    try {
+      commands.add(command);
+      wakeup.signal();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Stop the loop once its current command or generation is done, and
+   * then run a last command on its thread, to release what the
+   * simulation holds. Commands not yet run are dropped.
+   *
+   * @param lastCommand Command to run once the loop has stopped.
+   */
+  public void shutdown(Runnable lastCommand) {
+    lock.lock();
+    try {
+      if (!shutdown) {
+        shutdown = true;
+        this.lastCommand = lastCommand;
+        commands.clear();
+        wakeup.signal();
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void run() {
+    while (true) {
+      Runnable action;
+      lock.lock();
+      try {
+        action = null;
+        while (!shutdown && action == null) {
+          action = commands.poll();
+          if (action == null && playing) {
+            long wait = nextStep - System.nanoTime();
+            if (wait <= 0) {
+              // don't try to catch up on generations missed while
+              // the last one took longer than a period
+              nextStep = Math.max(nextStep + periodNanos, System.nanoTime());
+              action = step;
+            } else {
+              wakeup.awaitNanos(wait);
+            }
+          } else if (action == null) {
+            wakeup.await();
+          }
+        }
+        if (shutdown) {
+          break;
+        }
+      } catch (InterruptedException e) {
+        return;
+      } finally {
+        lock.unlock();
+      }
+      runSafely(action);
+    }
+    runSafely(lastCommand);
+  }
+
+  private void runSafely(Runnable action) {
+    try {
+      action.run();
+    } catch (Throwable e) {
+      // a broken simulation stops, but keeps taking commands; the
+      // loop must outlive even an Error, or every later command would
+      // wait forever
+      pause();
+      try {
+        failureHandler.accept(e);
+      } catch (Throwable handlerFailure) {
+        e.printStackTrace();
+        handlerFailure.printStackTrace();
+      }
+    }
+  }
+
+  private static long toNanos(double seconds) {
+    return (long) (seconds * TimeUnit.SECONDS.toNanos(1));
+  }
+
+  // start a virtual thread if possible, a daemon platform thread if not
+  private static void startThread(String name, Runnable body) {
+    if (OF_VIRTUAL != null) {
+      try {
+        Object builder = BUILDER_NAME.invoke(OF_VIRTUAL.invoke(null), name);
+        BUILDER_START.invoke(builder, body);
+        return;
+      } catch (ReflectiveOperationException e) {
+        // fall through to a platform thread
+      }
+    }
+    Thread thread = new Thread(body, name);
+    thread.setDaemon(true);
+    thread.start();
+  }
+}
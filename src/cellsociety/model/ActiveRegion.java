@@ -0,0 +1,225 @@
+package cellsociety.model;
+
+import cellsociety.model.grids.Dense2DCellGrid;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * Bookkeeping for active-region stepping. An ActiveRegion tracks which
+ * cells of a Dense2DCellGrid need to be evaluated in the coming
+ * generation: those which changed during the previous generation, and
+ * their neighbors. All other cells are quiescent, and a rule which
+ * supports active-region stepping would leave them unchanged.
+ *
+ * On top of the per-cell flags, the grid is divided into square tiles
+ * with a coarse "dirty" flag each, so that whole quiet tiles can be
+ * skipped without looking at their cells.
+ *
+ * Neighborhoods need not be symmetric: what a change to a cell
+ * activates is the set of its dependents (see NeighborInverse).
+ *
+ * Initially (and after markAll()), every cell is active.
+ *
+ * @author Franklin Wei
+ */
+class ActiveRegion {
+  /**
+   * Width and height of a tile, in cells.
+   */
+  static final int TILE_SIZE = 16;
+
+  private final Dense2DCellGrid grid;
+  private final int tilesX, tilesY;
+
+  private boolean active[], dirtyTiles[];
+  private boolean nextActive[], nextDirtyTiles[];
+
+  private final NeighborInverse inverse;
+
+  /**
+   * Create an ActiveRegion covering `grid', with every cell active.
+   *
+   * @param grid Grid to track.
+   * @param inverse Inverse of the grid's neighbor relation.
+   */
+  ActiveRegion(Dense2DCellGrid grid, NeighborInverse inverse) {
+    this.grid = grid;
+    this.inverse = inverse;
+    tilesX = (grid.getWidth() + TILE_SIZE - 1) / TILE_SIZE;
+    tilesY = (grid.getHeight() + TILE_SIZE - 1) / TILE_SIZE;
+
+    int cells = grid.getWidth() * grid.getHeight();
+    active = new boolean[cells];
+    nextActive = new boolean[cells];
+    dirtyTiles = new boolean[tilesX * tilesY];
+    nextDirtyTiles = new boolean[tilesX * tilesY];
+
+    markAll();
+  }
+
+  /**
+   * Mark every cell as active for the coming generation.
+   */
+  void markAll() {
+    Arrays.fill(active, true);
+    Arrays.fill(dirtyTiles, true);
+  }
+
+  /**
+   * Split the active cells into at most `parts' groups, each covering
+   * a band of tile rows, so that they can be evaluated concurrently.
+   *
+   * @param parts Desired number of groups.
+   * @return Disjoint groups of the indices of active cells.
+   */
+  List<CellIndices> partition(int parts) {
+    parts = Math.max(1, Math.min(parts, tilesY));
+
+    List<CellIndices> bands = new ArrayList<>();
+    for(int i = 0; i < parts; i++) {
+      int start = tilesY * i / parts;
+      int end = tilesY * (i + 1) / parts;
+      bands.add(() -> new ActiveIndexIterator(start * tilesX, end * tilesX));
+    }
+
+    return bands;
+  }
+
+  /**
+   * Record the outcome of the generation that was just evaluated:
+   * every evaluated cell whose next state differs from its current
+   * state, along with the cells it is a neighbor of, becomes active
+   * for the following generation. Must be called after the rule has
+   * been applied, but before the grid's time is advanced.
+   *
+   * Only active cells can have changed, so the neighbor counts of a
+   * NeighborHistogram can be brought forward at the same time.
+   *
+   * @param histogram Histogram to bring forward, or null.
+   */
+  void update(NeighborHistogram histogram) {
+    for(int tile = 0; tile < dirtyTiles.length; tile++) {
+      if(!dirtyTiles[tile])
+        continue;
+
+      for(int index = tileStart(tile); index >= 0; index = tileNext(tile, index)) {
+        if(!active[index])
+          continue;
+
+        if(changed(index)) {
+          markDependents(index);
+          if(histogram != null)
+            histogram.record(index);
+        }
+      }
+    }
+
+    // clear the flags we just consumed, touching only dirty tiles
+    for(int tile = 0; tile < dirtyTiles.length; tile++) {
+      if(!dirtyTiles[tile])
+        continue;
+      for(int index = tileStart(tile); index >= 0; index = tileNext(tile, index))
+        active[index] = false;
+      dirtyTiles[tile] = false;
+    }
+
+    boolean tmp[] = active;
+    active = nextActive;
+    nextActive = tmp;
+
+    tmp = dirtyTiles;
+    dirtyTiles = nextDirtyTiles;
+    nextDirtyTiles = tmp;
+  }
+
+  private boolean changed(int index) {
+    return grid.getStateAt(index, Cell.NEXT_TIME).getState() !=
+           grid.getStateAt(index, Cell.CURRENT_TIME).getState();
+  }
+
+  // mark `index' and every cell which has it as a neighbor
+  private void markDependents(int index) {
+    markNext(index);
+    for(int k = 0; k < inverse.getMaxDependents(); k++) {
+      int dependent = inverse.dependent(index, k);
+      if(dependent >= 0)
+        markNext(dependent);
+    }
+  }
+
+  private void markNext(int index) {
+    nextActive[index] = true;
+    nextDirtyTiles[tileOf(index)] = true;
+  }
+
+  private int tileOf(int index) {
+    int x = index % grid.getWidth(), y = index / grid.getWidth();
+    return (y / TILE_SIZE) * tilesX + x / TILE_SIZE;
+  }
+
+  // first cell index within `tile'
+  private int tileStart(int tile) {
+    int x = (tile % tilesX) * TILE_SIZE, y = (tile / tilesX) * TILE_SIZE;
+    return y * grid.getWidth() + x;
+  }
+
+  // cell index following `index' within `tile' (in row-major order),
+  // or -1 if `index' is the last cell of the tile
+  private int tileNext(int tile, int index) {
+    int width = grid.getWidth();
+    int x = index % width, y = index / width;
+    int tileX = (tile % tilesX) * TILE_SIZE, tileY = (tile / tilesX) * TILE_SIZE;
+
+    if(x + 1 < Math.min(tileX + TILE_SIZE, width))
+      return index + 1;
+    if(y + 1 < Math.min(tileY + TILE_SIZE, grid.getHeight()))
+      return (y + 1) * width + tileX;
+    return -1;
+  }
+
+  // iterates over the indices of the active cells of tiles
+  // [tile, endTile)
+  private class ActiveIndexIterator implements PrimitiveIterator.OfLong {
+    private int tile;
+    private final int endTile;
+    private int index = -1;
+
+    ActiveIndexIterator(int startTile, int endTile) {
+      this.tile = startTile;
+      this.endTile = endTile;
+      advance();
+    }
+
+    // move to the next active cell, starting after `index'
+    private void advance() {
+      while(tile < endTile) {
+        if(dirtyTiles[tile]) {
+          index = index < 0 ? tileStart(tile) : tileNext(tile, index);
+          while(index >= 0 && !active[index])
+            index = tileNext(tile, index);
+          if(index >= 0)
+            return;
+        }
+        tile++;
+        index = -1;
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      return tile < endTile;
+    }
+
+    @Override
+    public long nextLong() {
+      if(!hasNext())
+        throw new NoSuchElementException();
+      int found = index;
+      advance();
+      return found;
+    }
+  }
+}
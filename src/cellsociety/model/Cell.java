@@ -10,6 +10,10 @@ import cellsociety.model.util.*;
  * exactly one parent CellGrid, which it can access through the
  * `parentGrid' member.
  *
+ * States are copy-on-write: until a rule writes a Cell's state at
+ * T + 1, it reads as the state at T, so a generation costs nothing
+ * for Cells which do not change.
+ *
  * The separation of a cell's location (handled by Cell), and its
  * states (which are handled by StateList) is crucial for adherence to
  * the single responsibility principle.
@@ -50,8 +54,22 @@ public class Cell {
    * @param coordinates Location on parent grid.
    */
   public Cell(CellGrid parentGrid, GridCoordinates coordinates){
+    this(parentGrid, coordinates, new StateList<>());
+  }
+
+  /**
+   * Initialize a Cell with a given parent grid and StateList. Grids
+   * which keep their states elsewhere (and override the state
+   * accessors below) may pass a null StateList.
+   *
+   * @param parentGrid Parent CellGrid.
+   * @param coordinates Location on parent grid.
+   * @param states StateList holding this Cell's states, or null.
+   */
+  protected Cell(CellGrid parentGrid, GridCoordinates coordinates,
+                 StateList<CellState> states) {
     this.parentGrid = parentGrid;
-    this.states = new StateList<>();
+    this.states = states;
     this.coordinates = coordinates;
   }
 
@@ -63,7 +81,13 @@ public class Cell {
    * @param state The new CellState to assign.
    */
   public void setState(int delta, CellState state) {
-    states.setState(parentGrid.getCurrentTime() + delta, state);
+    int time = parentGrid.getCurrentTime() + delta;
+
+    // a state which was carried forward is recorded on first write
+    if(states.getLatestTime() < time)
+      states.addState(time, state);
+    else
+      states.setState(time, state);
   }
 
   /**
@@ -92,7 +116,8 @@ public class Cell {
 
   /**
    * This method returns the state list of this cell, which contains
-   * the current and (some or all) prior states for this Cell.
+   * the current and (some or all) prior states for this Cell. Cells
+   * which keep their states elsewhere may return a snapshot instead.
    *
    * @return The StateList for this Cell.
    */
@@ -101,7 +126,9 @@ public class Cell {
   }
 
   /**
-   * Duplicate the latest state in our state list.
+   * Duplicate the latest state in our state list. This is never
+   * needed before a step: a state which has not been written at T + 1
+   * reads as the state at T (see StateList).
    *
    * It is _critically important_ that this is only called once per
    * time step of the parent grid's simulation time.
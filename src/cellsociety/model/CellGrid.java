@@ -14,9 +14,22 @@ import java.util.stream.Collectors;
  * Iterating over a CellGrid is allowed through the standard Iterator
  * interface; doing so will yield a series of Cells.
  *
+ * Alongside Cells and GridCoordinates, a CellGrid can be addressed by
+ * opaque long cell indices (see indexOf()), which hot paths use to
+ * read and write states and walk neighborhoods without allocating.
+ * What an index encodes is up to the grid; the default
+ * implementations pack the coordinates into it and go through
+ * getCell(), and grids are expected to override them.
+ *
  * @author Franklin Wei
  */
 public abstract class CellGrid implements java.lang.Iterable<Cell> {
+  /**
+   * Index of a location which is not part of the grid (e.g. out of
+   * bounds on a grid without wrapping).
+   */
+  public static final long NO_CELL = Long.MIN_VALUE;
+
   private int currentTime;
 
   /**
@@ -40,6 +53,51 @@ public abstract class CellGrid implements java.lang.Iterable<Cell> {
         .collect(Collectors.toList());
   }
 
+  /**
+   * Split this grid into disjoint groups of Cells which together
+   * cover the whole grid, so that they can be processed
+   * concurrently. Implementing classes should split along their
+   * geometry (e.g. into bands of rows); by default, the whole grid is
+   * returned as a single part.
+   *
+   * @param parts Desired number of parts (a hint).
+   * @return List of disjoint groups of Cells.
+   */
+  public List<Iterable<Cell>> partition(int parts) {
+    return List.of(this);
+  }
+
+  /**
+   * Split this grid into disjoint groups of cell indices, as
+   * partition() does into groups of Cells, for walking over the grid
+   * without making a Cell per cell. Implementing classes should walk
+   * over their indices directly; by default, the indices are taken
+   * from the Cells of partition().
+   *
+   * @param parts Desired number of parts (a hint).
+   * @return List of disjoint groups of cell indices.
+   */
+  public List<CellIndices> partitionIndices(int parts) {
+    List<CellIndices> groups = new ArrayList<>();
+    for(Iterable<Cell> part : partition(parts)) {
+      groups.add(() -> new PrimitiveIterator.OfLong() {
+          private final Iterator<Cell> cells = part.iterator();
+
+          @Override
+          public boolean hasNext() {
+            return cells.hasNext();
+          }
+
+          @Override
+          public long nextLong() {
+            GridCoordinates coords = cells.next().getCoordinates();
+            return indexOf(coords.getX(), coords.getY());
+          }
+        });
+    }
+    return groups;
+  }
+
   /**
    * Retrieve the coordinates of cells neighboring the cell with
    * coordinates `coords'. The topological structure of a grid is
@@ -66,6 +124,102 @@ public abstract class CellGrid implements java.lang.Iterable<Cell> {
    */
   abstract public Cell getCell(GridCoordinates coords);
 
+  /**
+   * Retrieve the index of the location (x, y), after wrapping.
+   *
+   * @param x X coordinate.
+   * @param y Y coordinate.
+   * @return Index of the location, or NO_CELL if it is not part of
+   * this grid.
+   */
+  public long indexOf(int x, int y) {
+    Cell c = getCell(new GridCoordinates(x, y));
+    if(c == null)
+      return NO_CELL;
+    return pack(c.getCoordinates().getX(), c.getCoordinates().getY());
+  }
+
+  /**
+   * Retrieve the coordinates of the location at an index.
+   *
+   * @param index Index returned by indexOf() or neighborIndex().
+   * @return Coordinates of that location.
+   */
+  public GridCoordinates coordinatesOf(long index) {
+    return new GridCoordinates((int) (index >> 32), (int) index);
+  }
+
+  /**
+   * Retrieve the state of the cell at an index, at time delta +
+   * currentTime.
+   *
+   * @param index Index returned by indexOf() or neighborIndex().
+   * @param delta Time offset from current time.
+   * @return State at that location and time.
+   */
+  public CellState getStateAt(long index, int delta) {
+    return getCell(coordinatesOf(index)).getState(delta);
+  }
+
+  /**
+   * Modify the state of the cell at an index, at time delta +
+   * currentTime.
+   *
+   * @param index Index returned by indexOf() or neighborIndex().
+   * @param delta Time offset from current time.
+   * @param state The new CellState to assign.
+   */
+  public void setStateAt(long index, int delta, CellState state) {
+    getCell(coordinatesOf(index)).setState(delta, state);
+  }
+
+  /**
+   * Retrieve the maximum number of neighbors of any cell in this
+   * grid, which is the number of neighbor slots per cell walked by
+   * neighborIndex().
+   *
+   * @return Maximum neighbor count.
+   */
+  public abstract int getMaxNeighbors();
+
+  /**
+   * Retrieve the index of the k-th neighbor of the cell at `index'.
+   * Neighbors are numbered in the order getNeighborCoordinates()
+   * yields them.
+   *
+   * @param index Index of the center cell.
+   * @param k Neighbor slot in [0, getMaxNeighbors()).
+   * @return Index of the neighbor, or NO_CELL if there is none.
+   */
+  public long neighborIndex(long index, int k) {
+    List<GridCoordinates> neighbors = new ArrayList<>(getNeighborCoordinates(coordinatesOf(index)));
+    if(k >= neighbors.size())
+      return NO_CELL;
+    GridCoordinates coords = neighbors.get(k);
+    return indexOf(coords.getX(), coords.getY());
+  }
+
+  /**
+   * Pack coordinates into an index, as the default implementations
+   * of the index methods do.
+   *
+   * @param x X coordinate.
+   * @param y Y coordinate.
+   * @return Packed index.
+   */
+  protected static long pack(int x, int y) {
+    return ((long) x << 32) | (y & 0xffffffffL);
+  }
+
+  /**
+   * Extract a snapshot of the CellStates at time `delta + currentTime',
+   * for display, in row-major order.
+   *
+   * @param delta Time delta at which to retrieve a snapshot.
+   * @return 2D array in row-major order of CellStates.
+   */
+  public abstract CellState[][] extractStates(int delta);
+
   /**
    * Retrieve the current generation time (starting from zero).
    *
@@ -83,14 +237,13 @@ public abstract class CellGrid implements java.lang.Iterable<Cell> {
   }
 
   /**
-   * Copy all cell states from time T to T + 1.
+   * Make all cell states at time T + 1 equal to those at T.
    *
    * This is used by CellularAutomaton::step to begin the process of
-   * stepping to the next simulation generation.
+   * stepping to the next simulation generation. Cells carry their
+   * states forward until they are written (see Cell), so there is
+   * nothing to copy; grids which keep states elsewhere override this.
    */
   public void copyState() {
-    for(Cell c : this) {
-      c.copyState();
-    }
   }
 }
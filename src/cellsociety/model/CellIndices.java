@@ -0,0 +1,19 @@
+package cellsociety.model;
+
+import java.util.PrimitiveIterator;
+
+/**
+ * A group of cells of a CellGrid, given by their indices (see
+ * CellGrid.indexOf()), so that the cells can be walked over without a
+ * Cell being made for each of them.
+ *
+ * @author Franklin Wei
+ */
+public interface CellIndices {
+  /**
+   * Walk over the indices of the cells of this group.
+   *
+   * @return Iterator over the indices, which yields each of them once.
+   */
+  PrimitiveIterator.OfLong iterator();
+}
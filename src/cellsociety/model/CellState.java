@@ -1,5 +1,11 @@
 package cellsociety.model;
 
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
 import java.util.*;
 
 /**
@@ -18,6 +24,15 @@ import java.util.*;
  * @author Franklin Wei
  */
 public abstract class CellState<E extends Enum<E>> {
+  // canonical instances of each enum-only subclass, indexed by
+  // ordinal, or null for other subclasses
+  private static final ClassValue<CellState[]> CANONICAL = new ClassValue<>() {
+    @Override
+    protected CellState[] computeValue(Class<?> cl) {
+      return makeCanonical(cl.asSubclass(CellState.class));
+    }
+  };
+
   private final E state;
 
   /**
@@ -41,6 +56,123 @@ public abstract class CellState<E extends Enum<E>> {
     this(Enum.valueOf(cl, str));
   }
 
+  /**
+   * Check whether a CellState subclass is fully described by its enum
+   * value, i.e. it (and any intermediate superclasses) declares no
+   * instance fields of its own. Two such states with the same enum
+   * value are interchangeable, which allows them to be stored as bare
+   * ordinals.
+   *
+   * @param cl CellState subclass.
+   * @return True if instances carry no data beyond their enum value.
+   */
+  public static boolean isEnumOnly(Class<? extends CellState> cl) {
+    for(Class<?> c = cl; c != CellState.class; c = c.getSuperclass()) {
+      for(Field f : c.getDeclaredFields()) {
+        if(!Modifier.isStatic(f.getModifiers()))
+          return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Retrieve the canonical instances of an enum-only CellState
+   * subclass (see isEnumOnly()). The framework hands out only these
+   * instances for such subclasses, so that they can be compared by
+   * identity and transitions need not allocate.
+   *
+   * @param cl CellState subclass.
+   * @return One instance per enum constant, indexed by ordinal, or
+   * null if `cl' is not enum-only.
+   */
+  public static CellState[] getCanonicalStates(Class<? extends CellState> cl) {
+    CellState instances[] = CANONICAL.get(cl);
+    return instances == null ? null : instances.clone();
+  }
+
+  /**
+   * Retrieve a state of class `cl' from its name. Enum-only subclasses
+   * yield their canonical instance; others are constructed from the
+   * name.
+   *
+   * @param cl CellState subclass, with a public (String) constructor.
+   * @param name Name of the desired enum value.
+   * @return A CellState of class `cl'.
+   * @throws IllegalArgumentException if `name' names no enum value of
+   * `cl', or `cl' cannot be constructed.
+   */
+  public static CellState valueOf(Class<? extends CellState> cl, String name) throws IllegalArgumentException {
+    CellState instances[] = CANONICAL.get(cl);
+    if(instances != null) {
+      for(CellState instance : instances)
+        if(instance.state.name().equals(name))
+          return instance;
+      throw new IllegalArgumentException("no state " + name + " in " + cl.getSimpleName());
+    }
+
+    try {
+      return cl.getConstructor(String.class).newInstance(name);
+    } catch(InvocationTargetException e) {
+      if(e.getCause() instanceof IllegalArgumentException)
+        throw (IllegalArgumentException) e.getCause();
+      throw new IllegalArgumentException(e.getCause());
+    } catch(ReflectiveOperationException e) {
+      throw new IllegalArgumentException(e);
+    }
+  }
+
+  /**
+   * Retrieve the canonical instance of an enum-only subclass with the
+   * given enum value. Meant to back a static of() method in each such
+   * subclass.
+   *
+   * @param cl Enum-only CellState subclass.
+   * @param value Enum value.
+   * @return The canonical instance.
+   * @throws IllegalArgumentException if `cl' is not enum-only.
+   */
+  protected static <S extends CellState<T>, T extends Enum<T>> S canonical(Class<S> cl, T value) {
+    CellState instances[] = CANONICAL.get(cl);
+    if(instances == null)
+      throw new IllegalArgumentException(cl.getSimpleName() + " has no canonical instances");
+    return cl.cast(instances[value.ordinal()]);
+  }
+
+  // construct one instance of `cl' per enum constant, if `cl' is
+  // enum-only
+  private static CellState[] makeCanonical(Class<? extends CellState> cl) {
+    if(Modifier.isAbstract(cl.getModifiers()) || !isEnumOnly(cl))
+      return null;
+
+    Class<?> enumType = enumTypeOf(cl);
+    if(enumType == null)
+      return null;
+
+    Object values[] = enumType.getEnumConstants();
+    CellState instances[] = new CellState[values.length];
+    try {
+      Constructor<? extends CellState> constructor = cl.getConstructor(String.class);
+      for(int i = 0; i < values.length; i++)
+        instances[i] = constructor.newInstance(((Enum<?>) values[i]).name());
+    } catch(ReflectiveOperationException e) {
+      return null;
+    }
+    return instances;
+  }
+
+  // the enum type a CellState subclass is templated on, if known
+  private static Class<?> enumTypeOf(Class<?> cl) {
+    for(Class<?> c = cl; c != CellState.class; c = c.getSuperclass()) {
+      Type t = c.getGenericSuperclass();
+      if(t instanceof ParameterizedType && ((ParameterizedType) t).getRawType() == CellState.class) {
+        Type arg = ((ParameterizedType) t).getActualTypeArguments()[0];
+        return arg instanceof Class ? (Class<?>) arg : null;
+      }
+    }
+    return null;
+  }
+
   /**
    * Retrieve all available state names for this CellState variant.
    *
@@ -69,4 +201,13 @@ public abstract class CellState<E extends Enum<E>> {
   public E getState() {
     return state;
   }
+
+  /**
+   * Retrieve the ordinal of the raw enum value of this state.
+   *
+   * @return The state's position in its enum.
+   */
+  public int ordinal() {
+    return state.ordinal();
+  }
 }
@@ -1,5 +1,18 @@
 package cellsociety.model;
 
+import cellsociety.model.grids.Dense2DCellGrid;
+import cellsociety.model.grids.SparseTiledCellGrid;
+import cellsociety.model.grids.TiledLayout;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
 /**
  * Top-level class of the cellular automaton model. A
  * CellularAutomaton consists of a CellGrid on which the simulation
@@ -13,11 +26,98 @@ package cellsociety.model;
  * through getGrid(), which contains the current and past states of
  * the cellular automaton.
  *
+ * Local rules (see CellularAutomatonRule.isLocal()) can be applied
+ * on several threads at once by setting a thread count greater than
+ * one. The grid is then split into bands (see CellGrid.partitionIndices()),
+ * which are processed on a dedicated ForkJoinPool. Since local rules
+ * only write the cell they are given, the result is identical to
+ * stepping on a single thread. The pool's threads live until close()
+ * is called, which must be done before a model is discarded.
+ *
+ * Rules which are not local claim every cell they write (see
+ * Neighborhood.claim()), so that no two agents move into one cell.
+ * Those which only claim their neighbors (see
+ * CellularAutomatonRule.claimsNeighbors()) are stepped on row-major
+ * dense grids in a fixed number of bands of rows, first all
+ * even-numbered bands, then all odd-numbered ones, each band on a
+ * thread of its own if there are several. Concurrent bands are then
+ * too far apart to compete for a claim, so the result only depends on
+ * the order of cells within each band, which is the same whatever the
+ * thread count.
+ *
+ * Rules which support it (see
+ * CellularAutomatonRule.supportsActiveRegion()) can also be stepped in
+ * active-region mode on dense grids, where only cells which changed
+ * during the previous generation, and their neighbors, are
+ * evaluated. If the grid is modified outside of step(), invalidate()
+ * must be called so that every cell is evaluated again. Off-heap grids
+ * are always stepped in full.
+ *
+ * For rules which count their neighbors (see
+ * CellularAutomatonRule.countsNeighbors()), the number of neighbors of
+ * every cell of a dense grid in each state is kept from one generation
+ * to the next, updated from the cells which changed, so that
+ * Neighborhood.count() takes constant time.
+ *
+ * Otherwise, local rules which implement RegionKernel are handed the
+ * grid a block of cells at a time if it is plane-backed and has a
+ * TiledLayout: each tile is a Region (several, when stepping on more
+ * than one thread), and the bands are processed as above. Off-heap
+ * grids are handed over a few rows at a time, copied to the heap and
+ * back, so that the heap does not grow with the grid.
+ *
+ * Finally, a CellularAutomatonEngine can be installed to replace the
+ * cell-by-cell step for the grids and rules it supports.
+ *
+ * Stochastic rules draw their random numbers from a counter-based
+ * source keyed by the seed (see setSeed()), the generation and the
+ * cell (see Neighborhood.getRandom()), so the same seed gives the same
+ * run whatever the thread count and stepping mode.
+ *
+ * step(int) advances several generations with no interruption, which
+ * lets an engine batch them (see CellularAutomatonEngine).
+ *
  * @author Franklin Wei
  */
 public class CellularAutomaton {
+  /**
+   * Number of grid bands to create per thread, so that threads which
+   * finish early can pick up more work.
+   */
+  private static final int BANDS_PER_THREAD = 4;
+
+  /**
+   * Number of bands of rows to step rules which claim their neighbors
+   * in. It must not depend on the thread count, nor the result would.
+   */
+  private static final int CLAIM_BANDS = 16;
+
+  /**
+   * Number of rows of an off-heap grid to copy to the heap at once
+   * when handing it to a RegionKernel.
+   */
+  private static final int OFF_HEAP_ROWS = 64;
+
   private CellGrid grid;
   private CellularAutomatonRule rule;
+  private int threadCount = 1;
+  private ForkJoinPool pool;
+  private boolean activeRegionStepping;
+  private ActiveRegion activeRegion;
+  private NeighborInverse neighborInverse;
+  private NeighborHistogram histogram;
+  private Claims claims;
+  private CellularAutomatonEngine engine;
+  private long seed = ThreadLocalRandom.current().nextLong();
+
+  // neighbor offsets of each grid row, in slots of a plane with
+  // stride `regionStride', for region stepping
+  private int regionOffsets[][];
+  private int regionStride;
+
+  // heap copies of the current and next rows of an off-heap grid, two
+  // per band
+  private byte offHeapRows[][];
 
   /**
    * Create a new CellularAutomaton with the given initial grid and
@@ -25,8 +125,10 @@ public class CellularAutomaton {
    *
    * @param grid initial cell grid
    * @param rule initial rule
+   * @throws IllegalArgumentException if the grid cannot run the rule.
    */
   public CellularAutomaton(CellGrid grid, CellularAutomatonRule rule) {
+    checkRule(grid, rule);
     this.grid = grid;
     this.rule = rule;
   }
@@ -37,9 +139,122 @@ public class CellularAutomaton {
    * not affected.
    *
    * @param rule New rule.
+   * @throws IllegalArgumentException if the grid cannot run the rule.
    */
   public void setRule(CellularAutomatonRule rule) {
+    checkRule(grid, rule);
     this.rule = rule;
+    invalidate();
+  }
+
+  // a sparse grid only evaluates the cells it stores, which gives the
+  // wrong result for rules under which the background can change
+  private static void checkRule(CellGrid grid, CellularAutomatonRule rule) {
+    if(grid instanceof SparseTiledCellGrid && !((SparseTiledCellGrid) grid).supports(rule))
+      throw new IllegalArgumentException("sparse grids cannot run " + rule.getClass().getSimpleName());
+  }
+
+  /**
+   * Notify this CellularAutomaton that its grid, or the parameters of
+   * its rule, were modified outside of step(), so that any state
+   * derived from the grid is rebuilt.
+   */
+  public void invalidate() {
+    activeRegion = null;
+    histogram = null;
+    regionOffsets = null;
+    if(engine != null)
+      engine.invalidate();
+  }
+
+  /**
+   * Set the seed of the random numbers stochastic rules draw. Two
+   * simulations with the same grid, rule and seed evolve identically.
+   * The seed is drawn at random unless set.
+   *
+   * @param seed New seed, used from the next generation on.
+   */
+  public void setSeed(long seed) {
+    this.seed = seed;
+  }
+
+  /**
+   * Retrieve the seed of the random numbers stochastic rules draw.
+   *
+   * @return Current seed.
+   */
+  public long getSeed() {
+    return seed;
+  }
+
+  /**
+   * Install an engine to step the grid whenever it supports the grid
+   * and the rule, or remove it. The engine then takes the place of
+   * the thread count and active-region stepping.
+   *
+   * @param engine New engine, or null to always step cell by cell.
+   */
+  public void setEngine(CellularAutomatonEngine engine) {
+    this.engine = engine;
+    invalidate();
+  }
+
+  /**
+   * Retrieve the installed engine.
+   *
+   * @return Current engine, or null if none is installed.
+   */
+  public CellularAutomatonEngine getEngine() {
+    return engine;
+  }
+
+  /**
+   * Enable or disable active-region stepping. Even when enabled, it
+   * is only used with rules that support it, on dense grids, and not
+   * while an installed engine steps the grid (see setEngine()), since
+   * engines always evaluate every cell.
+   *
+   * @param enabled Whether to use active-region stepping.
+   */
+  public void setActiveRegionStepping(boolean enabled) {
+    activeRegionStepping = enabled;
+    invalidate();
+  }
+
+  /**
+   * Set the number of threads used to step local rules. A count of
+   * one (the default) steps on the calling thread. An installed
+   * engine which steps the grid (see setEngine()) always runs on the
+   * calling thread.
+   *
+   * @param threads Number of threads; must be at least 1.
+   */
+  public void setThreadCount(int threads) {
+    if(threads < 1)
+      throw new IllegalArgumentException("thread count must be at least 1");
+
+    if(pool != null)
+      pool.shutdown();
+
+    threadCount = threads;
+    pool = threads > 1 ? new ForkJoinPool(threads) : null;
+  }
+
+  /**
+   * Stop the threads started by setThreadCount(). The model can still
+   * be stepped afterwards, on the calling thread.
+   */
+  public void close() {
+    setThreadCount(1);
+  }
+
+  /**
+   * Retrieve the number of threads used to step local rules.
+   *
+   * @return Thread count.
+   */
+  public int getThreadCount() {
+    return threadCount;
   }
 
   /**
@@ -47,6 +262,15 @@ public class CellularAutomaton {
    * applying the `rule' to each Cell of the Grid.
    */
   public void step() {
+    if(engine != null && engine.supports(grid, rule)) {
+      // the engine leaves nothing for us to track
+      activeRegion = null;
+      histogram = null;
+      engine.setSeed(seed);
+      engine.step(grid, rule);
+      return;
+    }
+
     // First copy all cell states from time T to T + 1. This is
     // necessary so that cells can examine the state of cells that
     // have been "claimed" as movement destinations for other cells,
@@ -55,12 +279,320 @@ public class CellularAutomaton {
     // ensure that no two cells try to "move" to the same location.
     grid.copyState();
 
-    for(Cell c : grid)
-      rule.advanceCellState(c, grid.getNeighbors(c));
+    if(useRegions()) {
+      activeRegion = null;
+      histogram = null;
+      advanceRegions();
+      grid.advanceCurrentTime();
+      return;
+    }
+
+    if(useHistogram()) {
+      if(histogram == null)
+        histogram = new NeighborHistogram((Dense2DCellGrid) grid, getNeighborInverse());
+    } else {
+      histogram = null;
+    }
+
+    if(!rule.isLocal()) {
+      if(claims == null)
+        claims = new Claims(grid);
+      claims.nextGeneration();
+    }
+
+    if(useActiveRegion()) {
+      if(activeRegion == null)
+        activeRegion = new ActiveRegion((Dense2DCellGrid) grid, getNeighborInverse());
+      advance(activeRegion.partition(threadCount * BANDS_PER_THREAD));
+      activeRegion.update(histogram);
+    } else {
+      // nothing is tracked during a full step
+      activeRegion = null;
+      if(useWaves())
+        advanceInWaves();
+      else
+        advance(grid.partitionIndices(threadCount * BANDS_PER_THREAD));
+      if(histogram != null)
+        histogram.update();
+    }
 
     grid.advanceCurrentTime();
   }
 
+  /**
+   * Simulate `generations' generations at once. The result is the
+   * same as calling step() that many times, but intermediate
+   * generations are not observable: an installed engine may compute
+   * them in any order, and on a plane-backed grid only the last one
+   * is stored.
+   *
+   * @param generations Number of generations; must not be negative.
+   */
+  public void step(int generations) {
+    if(generations < 0)
+      throw new IllegalArgumentException("generation count must not be negative");
+    if(generations == 0)
+      return;
+
+    if(engine != null && engine.supports(grid, rule)) {
+      activeRegion = null;
+      histogram = null;
+      engine.setSeed(seed);
+      engine.step(grid, rule, generations);
+      return;
+    }
+
+    for(int i = 0; i < generations; i++)
+      step();
+  }
+
+  // the flags of an ActiveRegion would grow with an off-heap grid
+  private boolean useActiveRegion() {
+    return activeRegionStepping && rule.supportsActiveRegion() &&
+           grid instanceof Dense2DCellGrid && !((Dense2DCellGrid) grid).isOffHeap();
+  }
+
+  private boolean useHistogram() {
+    return rule.countsNeighbors() && grid instanceof Dense2DCellGrid &&
+           NeighborHistogram.supports((Dense2DCellGrid) grid);
+  }
+
+  // the neighbor relation of a dense grid never changes, so it is
+  // only inverted once
+  private NeighborInverse getNeighborInverse() {
+    if(neighborInverse == null)
+      neighborInverse = new NeighborInverse((Dense2DCellGrid) grid);
+    return neighborInverse;
+  }
+
+  // whether the rule can be stepped in waves of bands of rows
+  private boolean useWaves() {
+    return rule.claimsNeighbors() && grid instanceof Dense2DCellGrid && !((Dense2DCellGrid) grid).isZOrder();
+  }
+
+  // whether the rule can be handed regions of the grid's planes
+  private boolean useRegions() {
+    if(!(rule instanceof RegionKernel) || !rule.isLocal() || useActiveRegion() ||
+       !(grid instanceof Dense2DCellGrid))
+      return false;
+
+    // off-heap rows are copied assuming a single padded tile
+    Dense2DCellGrid dense = (Dense2DCellGrid) grid;
+    return dense.usesPlanes() && dense.getPlaneLayout() instanceof TiledLayout &&
+           (!dense.isOffHeap() || ((TiledLayout) dense.getPlaneLayout()).isPadded()) &&
+           dense.getWidth() > 0 && dense.getHeight() > 0;
+  }
+
+  // hand every tile of the grid to the rule, split into bands of rows
+  // if there are several threads
+  private void advanceRegions() {
+    Dense2DCellGrid dense = (Dense2DCellGrid) grid;
+    TiledLayout layout = (TiledLayout) dense.getPlaneLayout();
+    RegionKernel kernel = (RegionKernel) rule;
+
+    byte outside = (byte) CellState.getCanonicalStates(
+        dense.getStateAt(0, Cell.CURRENT_TIME).getClass()).length;
+
+    int stride = layout.getStride();
+    if(regionOffsets == null || regionStride != stride) {
+      regionOffsets = new int[dense.getHeight()][];
+      for(int y = 0; y < dense.getHeight(); y++)
+        regionOffsets[y] = dense.getNeighborOffsets(new GridCoordinates(0, y))
+            .mapToInt(offset -> offset.getY() * stride + offset.getX())
+            .toArray();
+      regionStride = stride;
+    }
+
+    if(dense.isOffHeap()) {
+      advanceOffHeapRegions(dense, layout, kernel, outside);
+      return;
+    }
+
+    byte current[] = dense.getRawPlane(Cell.CURRENT_TIME);
+    byte next[] = dense.getRawPlane(Cell.NEXT_TIME);
+    layout.refreshHalo(current, outside);
+
+    int tileWidth = layout.getTileWidth(), tileHeight = layout.getTileHeight();
+    int bandHeight = pool == null ? tileHeight :
+        Math.max(1, Math.min(tileHeight, dense.getHeight() / (threadCount * BANDS_PER_THREAD)));
+
+    List<Region> regions = new ArrayList<>();
+    for(int ty = 0; ty < layout.getTilesY(); ty++) {
+      int rows = Math.min(tileHeight, dense.getHeight() - ty * tileHeight);
+      for(int tx = 0; tx < layout.getTilesX(); tx++) {
+        int columns = Math.min(tileWidth, dense.getWidth() - tx * tileWidth);
+        int base = layout.getTileBase(tx, ty);
+
+        for(int y = 0; y < rows; y += bandHeight) {
+          regions.add(new Region(current, next, base + (y + 1) * stride + 1, stride,
+                                 tx * tileWidth, ty * tileHeight + y,
+                                 columns, Math.min(bandHeight, rows - y),
+                                 regionOffsets, dense.getMaxNeighbors(), outside,
+                                 seed, dense.getCurrentTime(), dense.getWidth()));
+        }
+      }
+    }
+
+    if(pool == null) {
+      for(Region region : regions)
+        kernel.advanceRegion(region);
+      return;
+    }
+
+    List<Callable<Void>> tasks = new ArrayList<>();
+    for(Region region : regions) {
+      tasks.add(() -> {
+        kernel.advanceRegion(region);
+        return null;
+      });
+    }
+    invokeAll(tasks);
+  }
+
+  // hand an off-heap grid with a padded layout to the rule in bands of
+  // rows, concurrently if possible: each band is copied to the heap
+  // OFF_HEAP_ROWS rows at a time, with the rows above and below, and
+  // the rows computed are copied back
+  private void advanceOffHeapRegions(Dense2DCellGrid dense, TiledLayout layout, RegionKernel kernel,
+                                     byte outside) {
+    ByteBuffer current = dense.getPlaneBuffer(Cell.CURRENT_TIME);
+    ByteBuffer next = dense.getPlaneBuffer(Cell.NEXT_TIME);
+    layout.refreshHalo(current, outside);
+
+    int width = dense.getWidth(), height = dense.getHeight();
+    int stride = layout.getStride();
+    int base = layout.getTileBase(0, 0);
+    int bands = pool == null ? 1 : Math.min(height, threadCount * BANDS_PER_THREAD);
+    if(offHeapRows == null || offHeapRows.length != 2 * bands ||
+       offHeapRows[0].length != (OFF_HEAP_ROWS + 2) * stride)
+      offHeapRows = new byte[2 * bands][(OFF_HEAP_ROWS + 2) * stride];
+
+    List<Runnable> work = new ArrayList<>();
+    for(int band = 0; band < bands; band++) {
+      byte source[] = offHeapRows[2 * band], destination[] = offHeapRows[2 * band + 1];
+      int start = height * band / bands, end = height * (band + 1) / bands;
+      work.add(() -> {
+        for(int y = start; y < end; y += OFF_HEAP_ROWS) {
+          int rows = Math.min(OFF_HEAP_ROWS, end - y);
+
+          // the slots of row y - 1 on, halo included
+          int first = base + y * stride;
+          int length = (rows + 2) * stride;
+          current.get(first, source, 0, length);
+          System.arraycopy(source, 0, destination, 0, length);
+
+          kernel.advanceRegion(new Region(source, destination, stride + 1, stride, 0, y, width, rows,
+                                          regionOffsets, dense.getMaxNeighbors(), outside,
+                                          seed, dense.getCurrentTime(), width));
+          next.put(first + stride, destination, stride, rows * stride);
+        }
+      });
+    }
+
+    if(pool == null) {
+      for(Runnable band : work)
+        band.run();
+      return;
+    }
+
+    List<Callable<Void>> tasks = new ArrayList<>();
+    for(Runnable band : work) {
+      tasks.add(() -> {
+        band.run();
+        return null;
+      });
+    }
+    invokeAll(tasks);
+  }
+
+  // apply the rule to every given part, concurrently if possible
+  private void advance(List<CellIndices> parts) {
+    if(pool != null && rule.isLocal()) {
+      stepParallel(parts);
+      return;
+    }
+
+    for(CellIndices part : parts)
+      advanceCells(part);
+  }
+
+  // apply a rule which claims its neighbors to CLAIM_BANDS bands of
+  // rows: the even-numbered bands, concurrently if possible, then the
+  // odd-numbered ones. A cell's claims reach as many rows away as its
+  // neighbors, so bands twice that high keep the claims of concurrent
+  // bands apart; there is an even number of them, so that on a
+  // wrapping grid the first and last bands are not stepped together.
+  private void advanceInWaves() {
+    Dense2DCellGrid dense = (Dense2DCellGrid) grid;
+    int bands = Math.min(CLAIM_BANDS, dense.getHeight() / (2 * getNeighborReach(dense))) & ~1;
+    if(bands < 2) {
+      advance(grid.partitionIndices(1));
+      return;
+    }
+
+    List<CellIndices> parts = grid.partitionIndices(bands);
+    for(int wave = 0; wave < 2; wave++) {
+      List<CellIndices> waveParts = new ArrayList<>();
+      for(int i = wave; i < parts.size(); i += 2)
+        waveParts.add(parts.get(i));
+
+      if(pool != null) {
+        stepParallel(waveParts);
+      } else {
+        for(CellIndices part : waveParts)
+          advanceCells(part);
+      }
+    }
+  }
+
+  // greatest number of rows between a cell and one of its neighbors
+  // (which can only depend on the parity of the row)
+  private static int getNeighborReach(Dense2DCellGrid dense) {
+    int reach = 1;
+    for(int y = 0; y < Math.min(2, dense.getHeight()); y++)
+      reach = Math.max(reach, dense.getNeighborOffsets(new GridCoordinates(0, y))
+                       .mapToInt(offset -> Math.abs(offset.getY())).max().orElse(0));
+    return reach;
+  }
+
+  private void advanceCells(CellIndices cells) {
+    GridNeighborhood neighborhood = new GridNeighborhood(grid, histogram, claims, seed);
+    for(PrimitiveIterator.OfLong indices = cells.iterator(); indices.hasNext(); ) {
+      neighborhood.moveTo(indices.nextLong());
+      rule.advanceCellState(neighborhood);
+    }
+  }
+
+  // apply the rule to each part of the grid on our pool, and wait for
+  // all parts to finish
+  private void stepParallel(List<CellIndices> parts) {
+    List<Callable<Void>> tasks = new ArrayList<>();
+    for(CellIndices band : parts) {
+      tasks.add(() -> {
+        advanceCells(band);
+        return null;
+      });
+    }
+    invokeAll(tasks);
+  }
+
+  // run tasks on our pool, and wait for all of them to finish
+  private void invokeAll(List<Callable<Void>> tasks) {
+    try {
+      for(Future<Void> f : pool.invokeAll(tasks))
+        f.get();
+    } catch(ExecutionException e) {
+      if(e.getCause() instanceof RuntimeException)
+        throw (RuntimeException) e.getCause();
+      if(e.getCause() instanceof Error)
+        throw (Error) e.getCause();
+      throw new IllegalStateException(e.getCause());
+    } catch(InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(e);
+    }
+  }
+
   /**
    * Retrieve the grid, which contains all state.
    *
@@ -0,0 +1,69 @@
+package cellsociety.model;
+
+/**
+ * A specialized implementation of CellularAutomaton.step() for some
+ * combinations of grid and rule. An engine is free to represent the
+ * grid however it likes while computing the next generation, but must
+ * leave the grid exactly as the generic, cell-by-cell step would have:
+ * the next generation written at T + 1, and the grid's current time
+ * advanced.
+ *
+ * An engine is consulted on every step, so a CellularAutomaton whose
+ * grid or rule changes to something the engine does not support falls
+ * back to generic stepping.
+ *
+ * @author Franklin Wei
+ */
+public abstract class CellularAutomatonEngine {
+  /**
+   * Check whether this engine can step `grid' under `rule'.
+   *
+   * @param grid Grid to be stepped.
+   * @param rule Rule to apply.
+   * @return True if step() may be called with these arguments.
+   */
+  public abstract boolean supports(CellGrid grid, CellularAutomatonRule rule);
+
+  /**
+   * Simulate one generation on `grid' under `rule'. Only called if
+   * supports(grid, rule) returned true.
+   *
+   * @param grid Grid to be stepped.
+   * @param rule Rule to apply.
+   */
+  public abstract void step(CellGrid grid, CellularAutomatonRule rule);
+
+  /**
+   * Simulate several generations on `grid' under `rule'. Only called
+   * if supports(grid, rule) returned true. Engines may compute the
+   * generations in between however they like, and a plane-backed grid
+   * (which keeps no history) need only hold the last of them; the
+   * default implementation calls step() `generations' times.
+   *
+   * @param grid Grid to be stepped.
+   * @param rule Rule to apply.
+   * @param generations Number of generations, at least 1.
+   */
+  public void step(CellGrid grid, CellularAutomatonRule rule, int generations) {
+    for(int i = 0; i < generations; i++)
+      step(grid, rule);
+  }
+
+  /**
+   * Set the seed of the random numbers drawn for stochastic rules (see
+   * CellularAutomaton.setSeed()). CellularAutomaton calls this before
+   * every step. The default implementation does nothing.
+   *
+   * @param seed Seed of the simulation.
+   */
+  public void setSeed(long seed) {
+  }
+
+  /**
+   * Discard any state derived from the grid or the rule, because
+   * either was modified outside of step(). The default implementation
+   * does nothing.
+   */
+  public void invalidate() {
+  }
+}
@@ -1,5 +1,6 @@
 package cellsociety.model;
 
+import cellsociety.model.util.TotalisticTable;
 import java.util.List;
 import java.util.Map;
 
@@ -27,13 +28,115 @@ public abstract class CellularAutomatonRule {
   }
 
   /**
-   * Advance the state of a cell. This is called once per simulation
-   * timestep for every Cell in the CellGrid.
+   * Advance the state of a cell, given as a list of neighbors. The
+   * default implementation calls advanceCellState(Neighborhood).
+   *
+   * Rules must override at least one of the two advanceCellState()
+   * methods, each of which defaults to the other.
    *
    * @param cell Cell to update.
    * @param neighbors List of neighboring Cells.
    */
-  public abstract void advanceCellState(Cell cell, List<Cell> neighbors);
+  public void advanceCellState(Cell cell, List<Cell> neighbors) {
+    advanceCellState(new ListNeighborhood(cell, neighbors));
+  }
+
+  /**
+   * Advance the state of the center of a Neighborhood. This is called
+   * once per simulation timestep for every Cell in the CellGrid, with
+   * a Neighborhood which is reused from cell to cell, so rules which
+   * override this should not allocate per call. The default
+   * implementation calls advanceCellState(Cell, List).
+   *
+   * @param neighborhood Cell to update and its neighbors.
+   */
+  public void advanceCellState(Neighborhood neighborhood) {
+    advanceCellState(neighborhood.getCenter(), neighborhood.getNeighborCells());
+  }
+
+  /**
+   * Whether this rule is local: advanceCellState() only reads the
+   * current states of the given cell and its neighbors, and only
+   * writes the next state of the given cell. Local rules can safely
+   * be applied to many cells concurrently. Rules which move contents
+   * between cells are not local.
+   *
+   * @return True if this rule is local; false by default.
+   */
+  public boolean isLocal() {
+    return false;
+  }
+
+  /**
+   * Whether this rule can be stepped in active-region mode, where a
+   * cell is only evaluated if it or one of its neighbors changed
+   * during the previous generation. This requires a local rule under
+   * which a cell in an unchanged neighborhood keeps its state, which
+   * holds for deterministic rules, but not for stochastic rules with
+   * spontaneous transitions.
+   *
+   * @return True if active-region stepping is safe; false by default.
+   */
+  public boolean supportsActiveRegion() {
+    return false;
+  }
+
+  /**
+   * Whether this rule decides by counting neighbors in given states
+   * (through Neighborhood.count()). CellularAutomaton then keeps those
+   * counts for every cell from one generation to the next, where it
+   * can, so that they need not be taken cell by cell.
+   *
+   * @return True if this rule counts neighbors; false by default.
+   */
+  public boolean countsNeighbors() {
+    return false;
+  }
+
+  /**
+   * Whether this rule, though not local, only writes the next states
+   * of the given cell and its neighbors, and claims each of them
+   * first (see Neighborhood.claim()). Such a rule can be applied to
+   * cells far enough apart concurrently: no two cells can then compete
+   * for the same claim, so the result does not depend on the number
+   * of threads.
+   *
+   * @return True if this rule only claims within the neighborhood;
+   * false by default.
+   */
+  public boolean claimsNeighbors() {
+    return false;
+  }
+
+  /**
+   * Retrieve this rule compiled into a lookup table, if it is
+   * outer-totalistic: the next state of a cell depends only on its
+   * own state and the number of its neighbors in each state. Engines
+   * can then step the rule without going through Cells. The default
+   * implementation returns null.
+   *
+   * @param maxNeighbors Largest number of neighbors a cell may have.
+   * @return Table equivalent to advanceCellState(), or null.
+   */
+  public TotalisticTable getTotalisticTable(int maxNeighbors) {
+    return null;
+  }
+
+  /**
+   * Retrieve this rule compiled into a lookup table, if it is
+   * stochastic, but outer-totalistic once each cell has drawn a field
+   * value from its random numbers for the generation (see
+   * TotalisticTable.RandomTransition). Engines which draw the field
+   * can then step the rule without going through Cells, with the same
+   * result for the same seed. The default implementation returns
+   * null.
+   *
+   * @param maxNeighbors Largest number of neighbors a cell may have.
+   * @return Table equivalent to advanceCellState(), or null.
+   */
+  public TotalisticTable getRandomTotalisticTable(int maxNeighbors) {
+    return null;
+  }
 
   /**
    * Set the simulation parameters. This is called when the simulation is
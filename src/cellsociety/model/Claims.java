@@ -0,0 +1,94 @@
+package cellsociety.model;
+
+import cellsociety.model.grids.Dense2DCellGrid;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Claims on the next-generation states of the cells of a grid, taken
+ * by rules which are not local before they write a cell other than
+ * their center (see Neighborhood.claim()). Each cell can be claimed
+ * once per generation, so that no two agents move into the same cell,
+ * even when cells are stepped on several threads.
+ *
+ * On a Dense2DCellGrid, the claims are an array of generation stamps,
+ * one per cell, which a claim sets by compare-and-set: a cell is
+ * claimed if its stamp is the current generation, so starting a
+ * generation clears every claim without touching the array. Other
+ * grids keep a concurrent set of claimed indices.
+ *
+ * @author Franklin Wei
+ */
+class Claims {
+  private final AtomicIntegerArray stamps;
+  private final Set<Long> claimed;
+  private int generation;
+
+  /**
+   * Create claims for every cell of a grid. nextGeneration() must be
+   * called before the first claim.
+   *
+   * @param grid Grid whose cells may be claimed.
+   */
+  Claims(CellGrid grid) {
+    if(grid instanceof Dense2DCellGrid) {
+      Dense2DCellGrid dense = (Dense2DCellGrid) grid;
+      stamps = new AtomicIntegerArray(dense.getWidth() * dense.getHeight());
+      claimed = null;
+    } else {
+      stamps = null;
+      claimed = ConcurrentHashMap.newKeySet();
+    }
+  }
+
+  /**
+   * Drop all claims, for a new generation. Must not be called while
+   * cells are being claimed.
+   */
+  void nextGeneration() {
+    if(claimed != null) {
+      claimed.clear();
+      return;
+    }
+
+    // a stamp left over from 2^32 generations ago would read as a
+    // claim once the counter wraps around
+    if(++generation == 0) {
+      for(int i = 0; i < stamps.length(); i++)
+        stamps.set(i, 0);
+      generation = 1;
+    }
+  }
+
+  /**
+   * Claim a cell for this generation.
+   *
+   * @param index Cell index (see CellGrid.indexOf()).
+   * @return True if the cell was unclaimed, and is now claimed by the
+   * caller; false if it was already claimed.
+   */
+  boolean claim(long index) {
+    if(claimed != null)
+      return claimed.add(index);
+
+    int i = (int) index;
+    int stamp = stamps.get(i);
+    return stamp != generation && stamps.compareAndSet(i, stamp, generation);
+  }
+
+  /**
+   * Check whether a cell has been claimed this generation. The answer
+   * may be out of date as soon as it is given if other threads are
+   * claiming cells, so callers must still claim() a cell before
+   * writing it.
+   *
+   * @param index Cell index (see CellGrid.indexOf()).
+   * @return True if the cell is claimed.
+   */
+  boolean isClaimed(long index) {
+    if(claimed != null)
+      return claimed.contains(index);
+    return stamps.get((int) index) == generation;
+  }
+}
@@ -0,0 +1,191 @@
+package cellsociety.model;
+
+import cellsociety.model.util.CounterRandom;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A Neighborhood which reads and writes states through the index
+ * methods of a CellGrid (indexOf(), neighborIndex(), getStateAt(),
+ * setStateAt()), so that moving it to a cell and reading its
+ * neighbors allocates nothing on grids which implement those
+ * methods without allocating. Given a NeighborHistogram, it takes
+ * neighbor counts from there instead of counting. Claims on cells go
+ * to the given Claims, which several GridNeighborhoods may share.
+ *
+ * @author Franklin Wei
+ */
+class GridNeighborhood extends Neighborhood {
+  private final CellGrid grid;
+  private final NeighborHistogram histogram;
+  private final Claims claims;
+  private final CounterRandom random;
+
+  private long centerIndex;
+
+  // the center as a Cell, once getCenter() has been called for it
+  private Cell center;
+
+  // indices of the in-bounds neighbors of the center, in order
+  private final long neighbors[];
+  private int size;
+
+  // offsets of the neighbors from the center, once getOffsetX() or
+  // getOffsetY() has been called for the current center
+  private final int offsetX[], offsetY[];
+  private boolean located;
+
+  // whether `random' is at the current center
+  private boolean randomPlaced;
+
+  /**
+   * Create a Neighborhood over a grid. It must be moved to a cell
+   * before use.
+   *
+   * @param grid Grid to view.
+   * @param histogram Neighbor counts of the grid's current
+   * generation, or null.
+   * @param claims Claims of the grid's next generation, or null if
+   * the rule is local and claims nothing.
+   * @param seed Seed of the simulation's random numbers.
+   */
+  GridNeighborhood(CellGrid grid, NeighborHistogram histogram, Claims claims, long seed) {
+    this.grid = grid;
+    this.histogram = histogram;
+    this.claims = claims;
+    random = new CounterRandom(seed);
+    neighbors = new long[grid.getMaxNeighbors()];
+    offsetX = new int[neighbors.length];
+    offsetY = new int[neighbors.length];
+  }
+
+  /**
+   * Make the cell at an index the center cell.
+   *
+   * @param index Index of a cell of the grid (see CellGrid.indexOf()).
+   */
+  void moveTo(long index) {
+    centerIndex = index;
+    center = null;
+
+    size = 0;
+    for(int k = 0; k < neighbors.length; k++) {
+      long neighbor = grid.neighborIndex(centerIndex, k);
+      if(neighbor != CellGrid.NO_CELL)
+        neighbors[size++] = neighbor;
+    }
+
+    located = false;
+    randomPlaced = false;
+    reset();
+  }
+
+  @Override
+  public Cell getCenter() {
+    if(center == null)
+      center = grid.getCell(grid.coordinatesOf(centerIndex));
+    return center;
+  }
+
+  @Override
+  public CellState getCenterState(int delta) {
+    return grid.getStateAt(centerIndex, delta);
+  }
+
+  @Override
+  public void setNextState(CellState state) {
+    grid.setStateAt(centerIndex, Cell.NEXT_TIME, state);
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public CellState getState(int k, int delta) {
+    return grid.getStateAt(neighbors[k], delta);
+  }
+
+  @Override
+  public void setState(int k, int delta, CellState state) {
+    grid.setStateAt(neighbors[k], delta, state);
+  }
+
+  @Override
+  public int getOffsetX(int k) {
+    locate();
+    return offsetX[k];
+  }
+
+  @Override
+  public int getOffsetY(int k) {
+    locate();
+    return offsetY[k];
+  }
+
+  // work out the offsets of all neighbors at once
+  private void locate() {
+    if(located)
+      return;
+
+    GridCoordinates coords = grid.coordinatesOf(centerIndex);
+    for(int k = 0; k < size; k++) {
+      GridCoordinates neighbor = grid.coordinatesOf(neighbors[k]);
+      offsetX[k] = neighbor.getX() - coords.getX();
+      offsetY[k] = neighbor.getY() - coords.getY();
+    }
+    located = true;
+  }
+
+  @Override
+  public CounterRandom getRandom() {
+    if(!randomPlaced) {
+      random.moveTo(grid.getCurrentTime(), centerIndex);
+      randomPlaced = true;
+    }
+    return random;
+  }
+
+  @Override
+  public boolean claimCenter() {
+    return getClaims().claim(centerIndex);
+  }
+
+  @Override
+  public boolean claim(int k) {
+    return getClaims().claim(neighbors[k]);
+  }
+
+  @Override
+  public boolean claim(Cell cell) {
+    GridCoordinates coords = cell.getCoordinates();
+    return getClaims().claim(grid.indexOf(coords.getX(), coords.getY()));
+  }
+
+  @Override
+  public boolean isClaimed(int k) {
+    return getClaims().isClaimed(neighbors[k]);
+  }
+
+  private Claims getClaims() {
+    if(claims == null)
+      throw new IllegalStateException("local rules cannot claim cells");
+    return claims;
+  }
+
+  @Override
+  public int count(int ordinal) {
+    if(histogram != null)
+      return histogram.count((int) centerIndex, ordinal);
+    return super.count(ordinal);
+  }
+
+  @Override
+  public List<Cell> getNeighborCells() {
+    List<Cell> cells = new ArrayList<>(size);
+    for(int k = 0; k < size; k++)
+      cells.add(grid.getCell(grid.coordinatesOf(neighbors[k])));
+    return cells;
+  }
+}
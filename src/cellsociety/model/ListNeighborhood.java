@@ -0,0 +1,112 @@
+package cellsociety.model;
+
+import cellsociety.model.util.CounterRandom;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A Neighborhood over a given cell and list of its neighbors, through
+ * which rules written against advanceCellState(Neighborhood) serve
+ * calls to advanceCellState(Cell, List).
+ *
+ * Since it keeps nothing from one call to the next, it takes a cell
+ * to be claimed once its next state differs from its current one:
+ * callers must write every cell they claim, and step cells one at a
+ * time. For the same reason, it has no simulation seed to give
+ * random numbers from, so getRandom() draws from a fresh seed.
+ *
+ * @author Franklin Wei
+ */
+class ListNeighborhood extends Neighborhood {
+  private final Cell center;
+  private final List<Cell> neighbors;
+  private CounterRandom random;
+
+  /**
+   * Create a Neighborhood of a cell.
+   *
+   * @param center Center cell.
+   * @param neighbors List of neighboring Cells.
+   */
+  ListNeighborhood(Cell center, List<Cell> neighbors) {
+    this.center = center;
+    this.neighbors = neighbors;
+  }
+
+  @Override
+  public Cell getCenter() {
+    return center;
+  }
+
+  @Override
+  public CellState getCenterState(int delta) {
+    return center.getState(delta);
+  }
+
+  @Override
+  public void setNextState(CellState state) {
+    center.setState(Cell.NEXT_TIME, state);
+  }
+
+  @Override
+  public int size() {
+    return neighbors.size();
+  }
+
+  @Override
+  public CellState getState(int k, int delta) {
+    return neighbors.get(k).getState(delta);
+  }
+
+  @Override
+  public void setState(int k, int delta, CellState state) {
+    neighbors.get(k).setState(delta, state);
+  }
+
+  @Override
+  public int getOffsetX(int k) {
+    return neighbors.get(k).getCoordinates().getX() - center.getCoordinates().getX();
+  }
+
+  @Override
+  public int getOffsetY(int k) {
+    return neighbors.get(k).getCoordinates().getY() - center.getCoordinates().getY();
+  }
+
+  @Override
+  public CounterRandom getRandom() {
+    if(random == null)
+      random = new CounterRandom(ThreadLocalRandom.current().nextLong());
+    return random;
+  }
+
+  @Override
+  public boolean claimCenter() {
+    return claim(center);
+  }
+
+  @Override
+  public boolean claim(int k) {
+    return claim(neighbors.get(k));
+  }
+
+  @Override
+  public boolean claim(Cell cell) {
+    return !isClaimed(cell);
+  }
+
+  @Override
+  public boolean isClaimed(int k) {
+    return isClaimed(neighbors.get(k));
+  }
+
+  // whether the next state of `cell' has been written
+  private static boolean isClaimed(Cell cell) {
+    return cell.getState(Cell.NEXT_TIME) != cell.getState(Cell.CURRENT_TIME);
+  }
+
+  @Override
+  public List<Cell> getNeighborCells() {
+    return neighbors;
+  }
+}
@@ -0,0 +1,127 @@
+package cellsociety.model;
+
+import cellsociety.model.grids.Dense2DCellGrid;
+
+/**
+ * The number of neighbors of every cell of a Dense2DCellGrid in each
+ * state, for rules which count their neighbors (see
+ * CellularAutomatonRule.countsNeighbors()). Through it,
+ * Neighborhood.count() takes constant time.
+ *
+ * The counts are taken in full once. After that, update() (or
+ * record(), for each cell which may have changed) brings them forward
+ * from one generation to the next: a cell whose state changes is
+ * moved from one count to another in each of its dependents (see
+ * NeighborInverse), which is much less work than counting again when
+ * few cells change. They must be brought forward after the rule has
+ * been applied, but before the grid's time is advanced; any other
+ * change to the grid makes them stale.
+ *
+ * Counts are kept in bytes, for state sets of at most MAX_STATES
+ * states.
+ *
+ * @author Franklin Wei
+ */
+class NeighborHistogram {
+  /**
+   * Largest number of states counted.
+   */
+  static final int MAX_STATES = 16;
+
+  private final Dense2DCellGrid grid;
+  private final NeighborInverse inverse;
+  private final int stateCount;
+
+  // count of neighbors of cell i in state s, at i * stateCount + s
+  private final byte counts[];
+
+  /**
+   * Count the neighbors of every cell of a grid.
+   *
+   * @param grid Grid, which must be supported (see supports()).
+   * @param inverse Inverse of the grid's neighbor relation.
+   */
+  NeighborHistogram(Dense2DCellGrid grid, NeighborInverse inverse) {
+    this.grid = grid;
+    this.inverse = inverse;
+    stateCount = stateCount(grid);
+
+    int cells = grid.getWidth() * grid.getHeight();
+    counts = new byte[cells * stateCount];
+    for(int index = 0; index < cells; index++) {
+      for(int k = 0; k < grid.getMaxNeighbors(); k++) {
+        int neighbor = grid.neighborIndex(index, k);
+        if(neighbor >= 0)
+          counts[index * stateCount + ordinalAt(neighbor, Cell.CURRENT_TIME)]++;
+      }
+    }
+  }
+
+  /**
+   * Check whether the neighbors of a grid's cells can be counted: it
+   * must be on the heap, not empty, and have few enough states and
+   * neighbors for the counts to fit.
+   *
+   * @param grid Grid to count.
+   * @return True if a NeighborHistogram can be made for it.
+   */
+  static boolean supports(Dense2DCellGrid grid) {
+    if(grid.isOffHeap() || grid.getWidth() == 0 || grid.getHeight() == 0 ||
+       grid.getMaxNeighbors() > Byte.MAX_VALUE)
+      return false;
+
+    int states = stateCount(grid);
+    return states <= MAX_STATES && (long) grid.getWidth() * grid.getHeight() * states <= Integer.MAX_VALUE;
+  }
+
+  // number of constants of the state enum
+  private static int stateCount(Dense2DCellGrid grid) {
+    Enum<?> state = grid.getStateAt(0, Cell.CURRENT_TIME).getState();
+    return state.getDeclaringClass().getEnumConstants().length;
+  }
+
+  private int ordinalAt(int index, int delta) {
+    return grid.getStateAt(index, delta).ordinal();
+  }
+
+  /**
+   * Retrieve the number of neighbors of a cell in a state.
+   *
+   * @param index Index of the cell.
+   * @param ordinal State ordinal.
+   * @return Neighbor count.
+   */
+  int count(int index, int ordinal) {
+    return ordinal < stateCount ? counts[index * stateCount + ordinal] : 0;
+  }
+
+  /**
+   * Bring the counts forward for one cell: if its next state differs
+   * from its current state, it is moved to the count of its next state
+   * in each of its dependents.
+   *
+   * @param index Index of a cell.
+   */
+  void record(int index) {
+    int from = ordinalAt(index, Cell.CURRENT_TIME), to = ordinalAt(index, Cell.NEXT_TIME);
+    if(from == to)
+      return;
+
+    for(int k = 0; k < inverse.getMaxDependents(); k++) {
+      int dependent = inverse.dependent(index, k);
+      if(dependent >= 0) {
+        counts[dependent * stateCount + from]--;
+        counts[dependent * stateCount + to]++;
+      }
+    }
+  }
+
+  /**
+   * Bring the counts forward for every cell.
+   */
+  void update() {
+    int cells = grid.getWidth() * grid.getHeight();
+    for(int index = 0; index < cells; index++)
+      record(index);
+  }
+}
@@ -0,0 +1,176 @@
+package cellsociety.model;
+
+import cellsociety.model.grids.Dense2DCellGrid;
+import java.util.*;
+
+/**
+ * The inverse of the neighbor relation of a Dense2DCellGrid: for each
+ * cell, its dependents, i.e. the cells which have it as a neighbor,
+ * each listed once for every time it names the cell as a neighbor.
+ * What a change to a cell affects is its dependents.
+ *
+ * Neighborhoods need not be symmetric (a hexagonal grid which wraps
+ * across an odd number of rows is not). Where one is, the dependents
+ * of a cell are its neighbors, and nothing is stored; only the cells
+ * whose dependents differ from their neighbors have them listed.
+ * Since the neighbor offsets of a grid depend on the row alone,
+ * those cells are found by looking at the cells near the left and
+ * right edges, and at one cell in the middle of each row, which
+ * stands for the rest of it.
+ *
+ * @author Franklin Wei
+ */
+class NeighborInverse {
+  private final Dense2DCellGrid grid;
+
+  // dependents of the cells whose dependents are not their neighbors,
+  // padded with -1 to maxDependents
+  private final Map<Integer, int[]> exceptions = new HashMap<>();
+  private int maxDependents;
+
+  /**
+   * Invert the neighbor relation of a grid.
+   *
+   * @param grid Grid whose neighbors to invert.
+   */
+  NeighborInverse(Dense2DCellGrid grid) {
+    this.grid = grid;
+    maxDependents = grid.getMaxNeighbors();
+    buildExceptions(findAsymmetric());
+  }
+
+  /**
+   * Retrieve the largest number of dependents of any cell.
+   *
+   * @return Number of dependent slots per cell.
+   */
+  int getMaxDependents() {
+    return maxDependents;
+  }
+
+  /**
+   * Retrieve the k-th dependent of a cell.
+   *
+   * @param index Index of the cell.
+   * @param k Dependent slot in [0, getMaxDependents()).
+   * @return Index of the dependent, or -1 if there is none.
+   */
+  int dependent(int index, int k) {
+    if(!exceptions.isEmpty()) {
+      int list[] = exceptions.get(index);
+      if(list != null)
+        return list[k];
+    }
+    return k < grid.getMaxNeighbors() ? grid.neighborIndex(index, k) : -1;
+  }
+
+  // cells which name, or are named by, a neighbor more often than
+  // the other way around
+  private Set<Integer> findAsymmetric() {
+    int width = grid.getWidth(), height = grid.getHeight();
+
+    // a cell at least this far from the left and right edges has no
+    // neighbor across them, and neither can its neighbors reach it
+    // across them, so its neighborhood is like that of every other
+    // such cell of its row
+    int reach = 1;
+    for(int offset[] : getOffsets())
+      reach = Math.max(reach, Math.abs(offset[0]));
+
+    Set<Integer> asymmetric = new HashSet<>();
+    for(int y = 0; y < height; y++) {
+      boolean wholeRow = width <= 2 * reach || !checkSymmetric(y * width + width / 2, asymmetric);
+      for(int x = 0; x < width; x++) {
+        if(!wholeRow && x == reach)
+          x = width - reach;
+        checkSymmetric(y * width + x, asymmetric);
+      }
+    }
+    return asymmetric;
+  }
+
+  // check whether a cell is named by each of its neighbors as often as
+  // it names them, adding both to `asymmetric' where it is not
+  private boolean checkSymmetric(int index, Set<Integer> asymmetric) {
+    boolean symmetric = true;
+    for(int k = 0; k < grid.getMaxNeighbors(); k++) {
+      int neighbor = grid.neighborIndex(index, k);
+      if(neighbor >= 0 && timesNamed(index, neighbor) != timesNamed(neighbor, index)) {
+        asymmetric.add(index);
+        asymmetric.add(neighbor);
+        symmetric = false;
+      }
+    }
+    return symmetric;
+  }
+
+  // number of neighbor slots of `of' which hold `index'
+  private int timesNamed(int of, int index) {
+    int times = 0;
+    for(int k = 0; k < grid.getMaxNeighbors(); k++)
+      if(grid.neighborIndex(of, k) == index)
+        times++;
+    return times;
+  }
+
+  // list the dependents of each asymmetric cell: a cell which names
+  // it is at one of the neighbor offsets of some row away from it, in
+  // the opposite direction
+  private void buildExceptions(Set<Integer> asymmetric) {
+    if(asymmetric.isEmpty())
+      return;
+
+    List<int[]> offsets = getOffsets();
+    for(int index : asymmetric) {
+      int x = index % grid.getWidth(), y = index / grid.getWidth();
+      Set<Integer> candidates = new HashSet<>();
+      for(int offset[] : offsets) {
+        int candidate = wrapIndex(x - offset[0], y - offset[1]);
+        if(candidate >= 0)
+          candidates.add(candidate);
+      }
+
+      int list[] = new int[0];
+      for(int candidate : candidates) {
+        for(int times = timesNamed(candidate, index); times > 0; times--) {
+          list = Arrays.copyOf(list, list.length + 1);
+          list[list.length - 1] = candidate;
+        }
+      }
+      exceptions.put(index, list);
+      maxDependents = Math.max(maxDependents, list.length);
+    }
+
+    for(Map.Entry<Integer, int[]> entry : exceptions.entrySet()) {
+      int length = entry.getValue().length;
+      int padded[] = Arrays.copyOf(entry.getValue(), maxDependents);
+      Arrays.fill(padded, length, maxDependents, -1);
+      entry.setValue(padded);
+    }
+  }
+
+  // distinct neighbor offsets of all rows, as (dx, dy) pairs
+  private List<int[]> getOffsets() {
+    Set<Long> seen = new HashSet<>();
+    List<int[]> offsets = new ArrayList<>();
+    for(int y = 0; y < grid.getHeight(); y++) {
+      grid.getNeighborOffsets(new GridCoordinates(0, y)).forEach(offset -> {
+          if(seen.add(((long) offset.getX() << 32) | (offset.getY() & 0xffffffffL)))
+            offsets.add(new int[] { offset.getX(), offset.getY() });
+        });
+    }
+    return offsets;
+  }
+
+  // index of (x, y) after wrapping, or -1 if out of bounds
+  private int wrapIndex(int x, int y) {
+    int width = grid.getWidth(), height = grid.getHeight();
+    if(x < 0 || x >= width || y < 0 || y >= height) {
+      if(!grid.isWrapping())
+        return -1;
+      x = ((x % width) + width) % width;
+      y = ((y % height) + height) % height;
+    }
+    return y * width + x;
+  }
+}
@@ -0,0 +1,218 @@
+package cellsociety.model;
+
+import cellsociety.model.util.CounterRandom;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A view of a cell (the "center") and its neighbors, which a
+ * CellularAutomatonRule reads and writes states through (see
+ * CellularAutomatonRule.advanceCellState(Neighborhood)).
+ *
+ * Neighbors are numbered from 0 to size() - 1, in the same order as
+ * CellGrid.getNeighbors() lists them. Unlike that list, a
+ * Neighborhood can be moved from cell to cell and reused, and gives
+ * the states of neighbors without handing out Cells, so that stepping
+ * a grid need not allocate anything per cell.
+ *
+ * A Neighborhood is only valid until it is moved to another cell, and
+ * must not be shared between threads.
+ *
+ * @author Franklin Wei
+ */
+public abstract class Neighborhood {
+  // number of neighbors in each state, by ordinal, once count() has
+  // been called for the current center
+  private int counts[] = new int[0];
+  private boolean counted;
+
+  /**
+   * Retrieve the center cell. Rules which only look at the
+   * neighborhood should not need it; it is there for rules which act
+   * on the whole grid.
+   *
+   * @return Center cell.
+   */
+  public abstract Cell getCenter();
+
+  /**
+   * Retrieve the state of the center cell.
+   *
+   * @param delta Time offset from the current time.
+   * @return State of the center at that time.
+   */
+  public abstract CellState getCenterState(int delta);
+
+  /**
+   * Retrieve the ordinal of the current state of the center cell.
+   *
+   * @return Ordinal of the center's state enum.
+   */
+  public int getCenterOrdinal() {
+    return getCenterState(Cell.CURRENT_TIME).ordinal();
+  }
+
+  /**
+   * Set the state of the center cell in the next generation.
+   *
+   * @param state New state.
+   */
+  public abstract void setNextState(CellState state);
+
+  /**
+   * Retrieve the number of neighbors. Locations outside the grid are
+   * not neighbors, so this may be smaller at the edge of a grid.
+   *
+   * @return Neighbor count.
+   */
+  public abstract int size();
+
+  /**
+   * Retrieve the ordinal of the current state of a neighbor.
+   *
+   * @param k Neighbor number in [0, size()).
+   * @return Ordinal of the neighbor's state enum.
+   */
+  public int getOrdinal(int k) {
+    return getState(k, Cell.CURRENT_TIME).ordinal();
+  }
+
+  /**
+   * Retrieve the state of a neighbor.
+   *
+   * @param k Neighbor number in [0, size()).
+   * @param delta Time offset from the current time.
+   * @return State of the neighbor at that time.
+   */
+  public abstract CellState getState(int k, int delta);
+
+  /**
+   * Set the state of a neighbor. Only rules which are not local (see
+   * CellularAutomatonRule.isLocal()) may do this.
+   *
+   * @param k Neighbor number in [0, size()).
+   * @param delta Time offset from the current time.
+   * @param state New state.
+   */
+  public abstract void setState(int k, int delta, CellState state);
+
+  /**
+   * Retrieve the X position of a neighbor relative to the center, as
+   * the difference of their X coordinates. On a wrapping grid, a
+   * neighbor across the edge is at its wrapped-around coordinates.
+   *
+   * @param k Neighbor number in [0, size()).
+   * @return Neighbor's X coordinate minus the center's.
+   */
+  public abstract int getOffsetX(int k);
+
+  /**
+   * Retrieve the Y position of a neighbor relative to the center (see
+   * getOffsetX()).
+   *
+   * @param k Neighbor number in [0, size()).
+   * @return Neighbor's Y coordinate minus the center's.
+   */
+  public abstract int getOffsetY(int k);
+
+  /**
+   * Claim the next state of the center cell for this generation.
+   * Rules which are not local must claim every cell before writing
+   * its next state (see claim()), including the center, which another
+   * cell's agent may have claimed first (for instance, a shark eating
+   * the fish in it).
+   *
+   * @return True if the caller now holds the claim; false if another
+   * cell claimed the center first.
+   */
+  public abstract boolean claimCenter();
+
+  /**
+   * Claim the next state of a neighbor for this generation, as a
+   * destination to move into, spawn into, or clear. A cell can be
+   * claimed only once per generation, so when a claim fails, the cell
+   * is taken and the rule should try another one. Claims are atomic,
+   * which is what lets CellularAutomaton step rules which are not
+   * local on several threads (see
+   * CellularAutomatonRule.claimsNeighbors()).
+   *
+   * @param k Neighbor number in [0, size()).
+   * @return True if the caller now holds the claim; false if the
+   * neighbor was already claimed.
+   */
+  public abstract boolean claim(int k);
+
+  /**
+   * Claim the next state of any cell of the grid for this generation
+   * (see claim(int)).
+   *
+   * @param cell Cell of the grid.
+   * @return True if the caller now holds the claim; false if the cell
+   * was already claimed.
+   */
+  public abstract boolean claim(Cell cell);
+
+  /**
+   * Check whether a neighbor has been claimed this generation. A
+   * neighbor which is not claimed may still be claimed by another
+   * thread before the caller gets to it, so this is only a hint for
+   * picking candidates to claim().
+   *
+   * @param k Neighbor number in [0, size()).
+   * @return True if the neighbor is claimed.
+   */
+  public abstract boolean isClaimed(int k);
+
+  /**
+   * Retrieve the random numbers of the center cell for the current
+   * generation. Stochastic rules must draw from here rather than from
+   * a generator of their own: the numbers depend only on the
+   * simulation's seed, the generation, the center and how many were
+   * drawn before, so a simulation gives the same result for the same
+   * seed however its cells are scheduled.
+   *
+   * @return Source positioned at the center's first draw; only valid
+   * until the Neighborhood is moved.
+   */
+  public abstract CounterRandom getRandom();
+
+  /**
+   * Retrieve the number of neighbors whose current state has the
+   * given ordinal. The counts of all states are taken at once, on the
+   * first call for each center.
+   *
+   * @param ordinal Ordinal of a state enum.
+   * @return Number of neighbors in that state.
+   */
+  public int count(int ordinal) {
+    if(!counted) {
+      int n = size();
+      Arrays.fill(counts, 0);
+      for(int k = 0; k < n; k++) {
+        int neighbor = getOrdinal(k);
+        if(neighbor >= counts.length)
+          counts = Arrays.copyOf(counts, neighbor + 1);
+        counts[neighbor]++;
+      }
+      counted = true;
+    }
+    return ordinal < counts.length ? counts[ordinal] : 0;
+  }
+
+  /**
+   * Retrieve the neighbors as a list of Cells, for code written
+   * against CellularAutomatonRule.advanceCellState(Cell, List).
+   * This allocates.
+   *
+   * @return List of neighboring Cells, in neighbor order.
+   */
+  public abstract List<Cell> getNeighborCells();
+
+  /**
+   * Forget everything derived from the previous center. Implementing
+   * classes must call this whenever the center changes.
+   */
+  protected void reset() {
+    counted = false;
+  }
+}
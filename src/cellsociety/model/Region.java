@@ -0,0 +1,193 @@
+package cellsociety.model;
+
+import cellsociety.model.util.CounterRandom;
+
+/**
+ * A rectangular block of cells of a plane-backed grid, as handed to a
+ * RegionKernel: the state ordinals of the current generation are read
+ * from a source plane, and those of the next written to a destination
+ * plane, at the same slots.
+ *
+ * The cell at row y and column x of the region (both counted from
+ * zero) is at slot getOrigin() + y * getStride() + x of either plane,
+ * and its neighbors at that slot plus each of getOffsets(y), in the
+ * order CellGrid.getNeighbors() lists them. Neighbor slots outside a
+ * non-wrapping grid hold getOutside(), which is not the ordinal of any
+ * state. The destination plane starts out as a copy of the source, so
+ * cells which keep their state need not be written. For an off-heap
+ * grid, both planes are heap copies of the rows of the region and the
+ * rows around it, rather than the grid's own planes.
+ *
+ * Stochastic kernels draw random numbers for each cell from
+ * getRandom(), so that they draw the same numbers as when the cell is
+ * stepped on its own (see Neighborhood.getRandom()).
+ *
+ * @author Franklin Wei
+ */
+public class Region {
+  private final byte source[], destination[];
+  private final int origin, stride, x, y, width, height;
+  private final int rowOffsets[][];
+  private final int maxNeighbors;
+  private final byte outside;
+  private final long seed;
+  private final int generation, gridWidth;
+  private CounterRandom random;
+
+  /**
+   * Describe a region.
+   *
+   * @param source Current plane.
+   * @param destination Next plane.
+   * @param origin Slot of the top-left cell.
+   * @param stride Distance between rows, in slots.
+   * @param x Grid X coordinate of the left column.
+   * @param y Grid Y coordinate of the top row.
+   * @param width Number of columns.
+   * @param height Number of rows.
+   * @param rowOffsets Neighbor offsets of each grid row, in slots.
+   * @param maxNeighbors Largest length of rowOffsets[].
+   * @param outside Ordinal held by slots outside the grid.
+   * @param seed Seed of the simulation's random numbers.
+   * @param generation Current generation of the grid.
+   * @param gridWidth Width of the whole grid.
+   */
+  Region(byte source[], byte destination[], int origin, int stride, int x, int y,
+         int width, int height, int rowOffsets[][], int maxNeighbors, byte outside,
+         long seed, int generation, int gridWidth) {
+    this.source = source;
+    this.destination = destination;
+    this.origin = origin;
+    this.stride = stride;
+    this.x = x;
+    this.y = y;
+    this.width = width;
+    this.height = height;
+    this.rowOffsets = rowOffsets;
+    this.maxNeighbors = maxNeighbors;
+    this.outside = outside;
+    this.seed = seed;
+    this.generation = generation;
+    this.gridWidth = gridWidth;
+  }
+
+  /**
+   * Retrieve the plane holding the current generation.
+   *
+   * @return Source plane, to be read only.
+   */
+  public byte[] getSource() {
+    return source;
+  }
+
+  /**
+   * Retrieve the plane receiving the next generation.
+   *
+   * @return Destination plane, to be written only within this region.
+   */
+  public byte[] getDestination() {
+    return destination;
+  }
+
+  /**
+   * Retrieve the slot of the top-left cell of this region.
+   *
+   * @return Origin slot.
+   */
+  public int getOrigin() {
+    return origin;
+  }
+
+  /**
+   * Retrieve the distance between the slots of vertically adjacent
+   * cells.
+   *
+   * @return Row stride, in slots.
+   */
+  public int getStride() {
+    return stride;
+  }
+
+  /**
+   * Retrieve the grid X coordinate of the left column of this region.
+   *
+   * @return X coordinate.
+   */
+  public int getX() {
+    return x;
+  }
+
+  /**
+   * Retrieve the grid Y coordinate of the top row of this region.
+   *
+   * @return Y coordinate.
+   */
+  public int getY() {
+    return y;
+  }
+
+  /**
+   * Retrieve the number of columns of this region.
+   *
+   * @return Width, in cells.
+   */
+  public int getWidth() {
+    return width;
+  }
+
+  /**
+   * Retrieve the number of rows of this region.
+   *
+   * @return Height, in cells.
+   */
+  public int getHeight() {
+    return height;
+  }
+
+  /**
+   * Retrieve the offsets of the neighbors of the cells in a row of
+   * this region. The array must not be modified.
+   *
+   * @param row Row in [0, getHeight()).
+   * @return Neighbor offsets, in slots.
+   */
+  public int[] getOffsets(int row) {
+    return rowOffsets[y + row];
+  }
+
+  /**
+   * Retrieve the largest number of neighbors of any cell in the grid.
+   *
+   * @return Maximum neighbor count.
+   */
+  public int getMaxNeighbors() {
+    return maxNeighbors;
+  }
+
+  /**
+   * Retrieve the ordinal held by slots outside the grid: one more
+   * than the largest state ordinal.
+   *
+   * @return Outside ordinal.
+   */
+  public byte getOutside() {
+    return outside;
+  }
+
+  /**
+   * Retrieve the random numbers of a cell of this region for the
+   * current generation. The source returned is shared by all cells of
+   * the region, and only yields the given cell's numbers until the next
+   * call.
+   *
+   * @param row Row within the region.
+   * @param column Column within the region.
+   * @return Source positioned at the cell's first draw.
+   */
+  public CounterRandom getRandom(int row, int column) {
+    if(random == null)
+      random = new CounterRandom(seed);
+    random.moveTo(generation, (long) (y + row) * gridWidth + x + column);
+    return random;
+  }
+}
@@ -0,0 +1,31 @@
+package cellsociety.model;
+
+/**
+ * Optional interface of a CellularAutomatonRule which can advance a
+ * whole rectangular block of cells per call, working directly on the
+ * state planes of a plane-backed grid. This keeps the loop over cells
+ * inside the rule, where the JIT can inline and vectorize it, instead
+ * of calling advanceCellState() once per cell.
+ *
+ * CellularAutomaton hands the tiles of a plane-backed grid with a
+ * TiledLayout (including the default padded one) to rules which
+ * implement this interface and are local, unless an engine steps the
+ * grid or active-region stepping is on. An off-heap grid is handed
+ * over as heap copies of a band of rows at a time, with the rows
+ * around them. advanceRegion() must
+ * then have the same effect on the cells of the region as
+ * advanceCellState() on each of them. Since regions may be advanced
+ * concurrently, it must only write destination slots of its own
+ * region.
+ *
+ * @author Franklin Wei
+ */
+public interface RegionKernel {
+  /**
+   * Compute the next states of the cells of a region.
+   *
+   * @param region Region to advance, with its source and destination
+   * planes.
+   */
+  void advanceRegion(Region region);
+}
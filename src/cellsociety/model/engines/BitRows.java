@@ -0,0 +1,81 @@
+package cellsociety.model.engines;
+
+/**
+ * Helpers for rows of cells packed into long[] bitmaps, 64 cells per
+ * word, with cell x at bit (x % 64) of word (x / 64). Bits past the
+ * width of a row are always kept clear.
+ *
+ * @author Franklin Wei
+ */
+final class BitRows {
+  private BitRows() {
+  }
+
+  /**
+   * Number of words needed for a row.
+   *
+   * @param width Row width, in cells.
+   * @return Word count.
+   */
+  static int words(int width) {
+    return (width + 63) / 64;
+  }
+
+  /**
+   * Mask of the valid bits of the last word of a row.
+   *
+   * @param width Row width, in cells.
+   * @return Bit mask.
+   */
+  static long tailMask(int width) {
+    return width % 64 == 0 ? -1L : (1L << (width % 64)) - 1;
+  }
+
+  /**
+   * Value of a cell.
+   *
+   * @param row Row bitmap.
+   * @param x Cell index.
+   * @return 0 or 1.
+   */
+  static long bit(long row[], int x) {
+    return (row[x >>> 6] >>> x) & 1;
+  }
+
+  /**
+   * Shift a row so that each cell sees its western neighbor:
+   * out[x] = row[x - 1].
+   *
+   * @param row Source row.
+   * @param out Destination row, distinct from `row'.
+   * @param width Row width, in cells.
+   * @param wrapping Whether cell 0 sees cell width - 1, rather than
+   * an empty cell.
+   */
+  static void shiftWest(long row[], long out[], int width, boolean wrapping) {
+    int words = row.length;
+    for(int i = words - 1; i >= 0; i--)
+      out[i] = (row[i] << 1) | (i > 0 ? row[i - 1] >>> 63 : 0);
+    out[words - 1] &= tailMask(width);
+    if(wrapping)
+      out[0] |= bit(row, width - 1);
+  }
+
+  /**
+   * Shift a row so that each cell sees its eastern neighbor:
+   * out[x] = row[x + 1].
+   *
+   * @param row Source row.
+   * @param out Destination row, distinct from `row'.
+   * @param width Row width, in cells.
+   * @param wrapping Whether cell width - 1 sees cell 0, rather than
+   * an empty cell.
+   */
+  static void shiftEast(long row[], long out[], int width, boolean wrapping) {
+    int words = row.length;
+    for(int i = 0; i < words; i++)
+      out[i] = (row[i] >>> 1) | (i + 1 < words ? row[i + 1] << 63 : 0);
+    if(wrapping)
+      out[(width - 1) >>> 6] |= bit(row, 0) << (width - 1);
+  }
+}
@@ -0,0 +1,200 @@
+package cellsociety.model.engines;
+
+import cellsociety.model.Cell;
+import cellsociety.model.CellGrid;
+import cellsociety.model.CellularAutomatonEngine;
+import cellsociety.model.CellularAutomatonRule;
+import cellsociety.model.GridCoordinates;
+import cellsociety.model.grids.Dense2DCellGrid;
+import cellsociety.model.grids.HexagonalCellGrid;
+import cellsociety.model.grids.RectangularCellGrid;
+import cellsociety.model.rules.ElementaryRule;
+import cellsociety.model.states.ElementaryState;
+import java.util.Arrays;
+
+/**
+ * Row-at-a-time engine for ElementaryRule on rectangular and hexagonal
+ * grids.
+ *
+ * ElementaryRule treats each row as a generation of a one-dimensional
+ * automaton: a dead cell takes the value that the rule number gives
+ * for its neighbors in the row above, while live cells stay alive. A
+ * row can therefore only change in the generation after the row above
+ * it changed. This engine keeps every row of the grid as a long[]
+ * bitmap (the history of the one-dimensional automaton), and on each
+ * step evaluates only the rows below rows which changed, 64 cells at
+ * a time, by matching the rule number's bits against shifted copies
+ * of the row above.
+ *
+ * The bitmaps are kept between steps, and reloaded from the grid
+ * after invalidate().
+ *
+ * Only non-wrapping grids are supported: ElementaryRule orders
+ * neighbors by their raw coordinate deltas, which on a wrapping grid
+ * puts the neighbors across an edge out of order (or below the cell).
+ * Off-heap grids are not supported either, as the bitmaps would grow
+ * with them on the heap.
+ *
+ * @author Franklin Wei
+ */
+public class ElementaryEngine extends CellularAutomatonEngine {
+  private static final ElementaryState ALIVE = ElementaryState.of(ElementaryState.States.ALIVE);
+  private static final ElementaryState DEAD = ElementaryState.of(ElementaryState.States.DEAD);
+
+  private Dense2DCellGrid grid;
+  private int width, height, words;
+
+  // rows[y]: current generation of row y
+  private long rows[][];
+
+  // whether each row changed during the last step; null if every row
+  // must be evaluated
+  private boolean changed[];
+
+  // x offsets of the cells above, in index order, for even and odd
+  // rows
+  private int taps[][];
+
+  @Override
+  public boolean supports(CellGrid grid, CellularAutomatonRule rule) {
+    return (grid instanceof RectangularCellGrid || grid instanceof HexagonalCellGrid) &&
+           !((Dense2DCellGrid) grid).isWrapping() && !((Dense2DCellGrid) grid).isOffHeap() &&
+           rule instanceof ElementaryRule;
+  }
+
+  @Override
+  public void invalidate() {
+    grid = null;
+  }
+
+  @Override
+  public void step(CellGrid cellGrid, CellularAutomatonRule rule) {
+    if(cellGrid != grid)
+      load((Dense2DCellGrid) cellGrid);
+
+    int code = ((ElementaryRule) rule).getRule();
+
+    // evaluate rows into `next', against the current generation
+    long next[][] = new long[height][];
+    boolean nextChanged[] = new boolean[height];
+    long scratch[][] = new long[3][words];
+    for(int y = 0; y < height; y++) {
+      if(changed != null && (y == 0 || !changed[y - 1]))
+        continue;
+
+      long row[] = evaluate(y, code, scratch);
+      for(int i = 0; i < words; i++)
+        row[i] |= rows[y][i];
+      if(!Arrays.equals(row, rows[y])) {
+        next[y] = row;
+        nextChanged[y] = true;
+      }
+    }
+
+    grid.copyState();
+    for(int y = 0; y < height; y++) {
+      if(next[y] == null)
+        continue;
+      for(int i = 0; i < words; i++) {
+        long born = next[y][i] & ~rows[y][i];
+        while(born != 0) {
+          int x = i * 64 + Long.numberOfTrailingZeros(born);
+          born &= born - 1;
+          grid.setStateAt(y * width + x, Cell.NEXT_TIME, ALIVE);
+        }
+      }
+      rows[y] = next[y];
+    }
+    grid.advanceCurrentTime();
+
+    changed = nextChanged;
+  }
+
+  // read the grid into bitmaps, and mark every row for evaluation
+  private void load(Dense2DCellGrid dense) {
+    grid = dense;
+    width = dense.getWidth();
+    height = dense.getHeight();
+    words = BitRows.words(width);
+
+    rows = new long[height][words];
+    for(int y = 0; y < height; y++)
+      for(int x = 0; x < width; x++)
+        if(dense.getStateAt(y * width + x, Cell.CURRENT_TIME).getState() == ElementaryState.States.ALIVE)
+          rows[y][x >>> 6] |= 1L << x;
+
+    taps = new int[][] { tapsOf(dense, 0), tapsOf(dense, 1) };
+    changed = null;
+  }
+
+  // x offsets of the neighbors in the row above, in the order
+  // ElementaryRule reads them
+  private static int[] tapsOf(Dense2DCellGrid grid, int parity) {
+    return grid.getNeighborOffsets(new GridCoordinates(0, parity))
+        .filter(offset -> offset.getY() < 0)
+        .mapToInt(GridCoordinates::getX)
+        .sorted()
+        .toArray();
+  }
+
+  // the value of row y after one step, ignoring its current value
+  private long[] evaluate(int y, int code, long scratch[][]) {
+    long out[] = new long[words];
+    int above = y - 1;
+    int rowTaps[] = y == 0 ? new int[0] : taps[y & 1];
+    int k = rowTaps.length;
+
+    // tapped[i][x] = row above at x + rowTaps[i]
+    long tapped[][] = new long[k][];
+    for(int i = 0; i < k; i++) {
+      long source[] = rows[above];
+      if(rowTaps[i] == 0) {
+        tapped[i] = source;
+      } else {
+        tapped[i] = scratch[i];
+        if(rowTaps[i] < 0)
+          BitRows.shiftWest(source, tapped[i], width, false);
+        else
+          BitRows.shiftEast(source, tapped[i], width, false);
+      }
+    }
+
+    long tail = BitRows.tailMask(width);
+    for(int w = 0; w < words; w++) {
+      long result = 0;
+      for(int index = 0; index < 1 << k; index++) {
+        if((code >> index & 1) == 0)
+          continue;
+        long match = -1L;
+        for(int i = 0; i < k; i++)
+          match &= ((index >> (k - 1 - i)) & 1) != 0 ? tapped[i][w] : ~tapped[i][w];
+        result |= match;
+      }
+      out[w] = w == words - 1 ? result & tail : result;
+    }
+
+    // cells at the edges have fewer neighbors, and so a shorter index
+    if(y > 0) {
+      for(int x = 0; x < width; x++) {
+        if(x > 0 && x < width - 1)
+          x = width - 1;
+        setBit(out, x, edgeValue(above, x, rowTaps, code));
+      }
+    }
+
+    return out;
+  }
+
+  private long edgeValue(int above, int x, int rowTaps[], int code) {
+    int index = 0;
+    for(int dx : rowTaps) {
+      if(x + dx >= 0 && x + dx < width)
+        index = (index << 1) | (int) BitRows.bit(rows[above], x + dx);
+    }
+    return code >> index & 1;
+  }
+
+  private static void setBit(long row[], int x, long value) {
+    row[x >>> 6] = (row[x >>> 6] & ~(1L << x)) | (value << x);
+  }
+}
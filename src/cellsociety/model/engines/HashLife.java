@@ -0,0 +1,432 @@
+package cellsociety.model.engines;
+
+import cellsociety.model.Cell;
+import cellsociety.model.grids.Dense2DCellGrid;
+import cellsociety.model.grids.RectangularCellGrid;
+import cellsociety.model.rules.GameOfLifeRule;
+import cellsociety.model.states.GameOfLifeState;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * HashLife simulator for life-like rules, able to advance a pattern
+ * by millions of generations at once.
+ *
+ * The universe is a quadtree whose nodes are hash-consed: any two
+ * identical squares of the universe, at any position or time, are the
+ * same Node. Each node of level L (a square of side 2^L) memoizes its
+ * center square of level L - 1 after 2^j generations, for every j up
+ * to L - 2, so repeated structure in space and time is only ever
+ * computed once.
+ *
+ * Unlike CellularAutomaton.step(), HashLife simulates an unbounded
+ * plane, of which the grid it is loaded from is only a window: cells
+ * may leave the window and come back. For that reason wrapping grids
+ * are rejected, as are rules under which empty space comes to life.
+ *
+ * Nodes live in a cache which is garbage-collected after an advance
+ * whenever it holds more than getMaxNodes() nodes: only the nodes
+ * reachable from the current universe are kept, and all memoized
+ * results are dropped.
+ *
+ * Example:
+ *
+ * HashLife life = new HashLife(grid, rule);
+ * life.advance(20); // 2^20 generations
+ * life.project(grid);
+ *
+ * @author Franklin Wei
+ */
+public class HashLife {
+  /**
+   * Default bound on the size of the node cache.
+   */
+  public static final int DEFAULT_MAX_NODES = 1 << 22;
+
+  private static final GameOfLifeState ALIVE = GameOfLifeState.of(GameOfLifeState.States.ALIVE);
+  private static final GameOfLifeState DEAD = GameOfLifeState.of(GameOfLifeState.States.DEAD);
+
+  // smallest level of the root; a level-2 node is the smallest which
+  // can be advanced
+  private static final int MIN_LEVEL = 3;
+
+  // largest level of the root, so that coordinates fit in a long
+  private static final int MAX_LEVEL = 60;
+
+  private final boolean birth[] = new boolean[9];
+  private final boolean survival[] = new boolean[9];
+  private final boolean diagonals;
+
+  private final Node dead = new Node(0, 0);
+  private final Node alive = new Node(0, 1);
+  private final List<Node> emptyNodes = new ArrayList<>();
+  private Map<Node, Node> nodes = new HashMap<>();
+  private int maxNodes = DEFAULT_MAX_NODES;
+
+  private Node root;
+  private long originX, originY;
+  private long generation;
+
+  /**
+   * Create a HashLife universe holding the current generation of
+   * `grid', placed with its top-left cell at the origin.
+   *
+   * @param grid Rectangular, non-wrapping grid of GameOfLifeStates.
+   * @param rule Rule whose birth and survival counts to apply. Later
+   * changes to the rule are not seen.
+   * @throws IllegalArgumentException if the grid or rule cannot be
+   * simulated on an unbounded plane.
+   */
+  public HashLife(Dense2DCellGrid grid, GameOfLifeRule rule) {
+    if(!(grid instanceof RectangularCellGrid))
+      throw new IllegalArgumentException("HashLife requires a rectangular grid");
+    if(grid.isWrapping())
+      throw new IllegalArgumentException("HashLife cannot simulate a wrapping grid");
+    if(rule.isBirthCount(0))
+      throw new IllegalArgumentException("HashLife cannot simulate rules with birth on zero neighbors");
+
+    for(int n = 0; n < birth.length; n++) {
+      birth[n] = rule.isBirthCount(n);
+      survival[n] = rule.isSurvivalCount(n);
+    }
+    diagonals = ((RectangularCellGrid) grid).getNeighborCount() == 8;
+
+    load(grid);
+  }
+
+  /**
+   * Replace the universe with the current generation of `grid',
+   * placed with its top-left cell at the origin, and reset the
+   * generation count.
+   *
+   * @param grid Grid to load, with the same neighborhood as the one
+   * this HashLife was created with.
+   */
+  public void load(Dense2DCellGrid grid) {
+    int level = MIN_LEVEL;
+    while((1 << level) < Math.max(grid.getWidth(), grid.getHeight()))
+      level++;
+
+    root = build(grid, 0, 0, level);
+    originX = 0;
+    originY = 0;
+    generation = 0;
+  }
+
+  /**
+   * Advance the universe by 2^k generations.
+   *
+   * @param k Base-2 logarithm of the number of generations.
+   * @throws IllegalArgumentException if k is negative, or so large
+   * that the universe cannot be addressed.
+   */
+  public void advance(int k) {
+    if(k < 0 || k > MAX_LEVEL - 3)
+      throw new IllegalArgumentException("cannot advance by 2^" + k + " generations");
+
+    // A node's result is its center, 2^(level - 2) cells in from each
+    // side, so pad until the live cells are at least 2^k cells further
+    // in than that, which is as far as they can spread.
+    while(root.level < k + 2 || !isPadded())
+      expand();
+    expand();
+    if(root.level > MAX_LEVEL)
+      throw new IllegalArgumentException("universe too large to advance by 2^" + k + " generations");
+
+    long offset = 1L << (root.level - 2);
+    root = step(root, k);
+    originX += offset;
+    originY += offset;
+    generation += 1L << k;
+
+    if(nodes.size() > maxNodes)
+      collect();
+  }
+
+  /**
+   * Write the part of the universe covered by `grid' into the grid as
+   * its next generation, and advance the grid's time. Only the cells
+   * whose state differs are modified.
+   *
+   * @param grid Grid to write into.
+   */
+  public void project(Dense2DCellGrid grid) {
+    int width = grid.getWidth(), height = grid.getHeight();
+    boolean live[] = new boolean[width * height];
+    collectLive(root, originX, originY, width, height, live);
+
+    grid.copyState();
+    for(int index = 0; index < live.length; index++) {
+      boolean wasLive = grid.getStateAt(index, Cell.CURRENT_TIME).getState() == GameOfLifeState.States.ALIVE;
+      if(live[index] != wasLive)
+        grid.setStateAt(index, Cell.NEXT_TIME, live[index] ? ALIVE : DEAD);
+    }
+    grid.advanceCurrentTime();
+  }
+
+  /**
+   * Retrieve the number of generations simulated since the last load.
+   *
+   * @return Generation count.
+   */
+  public long getGeneration() {
+    return generation;
+  }
+
+  /**
+   * Retrieve the number of live cells in the whole universe.
+   *
+   * @return Population.
+   */
+  public long getPopulation() {
+    return root.population;
+  }
+
+  /**
+   * Retrieve the number of nodes in the cache.
+   *
+   * @return Node count.
+   */
+  public int getNodeCount() {
+    return nodes.size();
+  }
+
+  /**
+   * Retrieve the bound on the size of the node cache.
+   *
+   * @return Maximum node count.
+   */
+  public int getMaxNodes() {
+    return maxNodes;
+  }
+
+  /**
+   * Set the bound on the size of the node cache. The cache may exceed
+   * it during an advance, but is collected afterwards.
+   *
+   * @param maxNodes Maximum node count; must be positive.
+   */
+  public void setMaxNodes(int maxNodes) {
+    if(maxNodes < 1)
+      throw new IllegalArgumentException("node cache must hold at least one node");
+    this.maxNodes = maxNodes;
+  }
+
+  // build the node of the given level whose top-left cell is (x, y)
+  private Node build(Dense2DCellGrid grid, int x, int y, int level) {
+    if(x >= grid.getWidth() || y >= grid.getHeight())
+      return empty(level);
+    if(level == 0) {
+      int index = y * grid.getWidth() + x;
+      return grid.getStateAt(index, Cell.CURRENT_TIME).getState() == GameOfLifeState.States.ALIVE ? alive : dead;
+    }
+
+    int half = 1 << (level - 1);
+    return join(build(grid, x, y, level - 1), build(grid, x + half, y, level - 1),
+                build(grid, x, y + half, level - 1), build(grid, x + half, y + half, level - 1));
+  }
+
+  // canonical node with the given quadrants
+  private Node join(Node nw, Node ne, Node sw, Node se) {
+    Node candidate = new Node(nw, ne, sw, se);
+    Node existing = nodes.putIfAbsent(candidate, candidate);
+    return existing != null ? existing : candidate;
+  }
+
+  // canonical empty node of the given level
+  private Node empty(int level) {
+    while(emptyNodes.size() <= level) {
+      if(emptyNodes.isEmpty()) {
+        emptyNodes.add(dead);
+      } else {
+        Node e = emptyNodes.get(emptyNodes.size() - 1);
+        emptyNodes.add(join(e, e, e, e));
+      }
+    }
+    return emptyNodes.get(level);
+  }
+
+  // center quadrant of a node, one level down
+  private Node center(Node n) {
+    return join(n.nw.se, n.ne.sw, n.sw.ne, n.se.nw);
+  }
+
+  // whether every live cell lies within the root's center quadrant
+  private boolean isPadded() {
+    return center(root).population == root.population;
+  }
+
+  // double the side of the universe, keeping the root in the middle
+  private void expand() {
+    Node e = empty(root.level - 1);
+    root = join(join(e, e, e, root.nw), join(e, e, root.ne, e),
+                join(e, root.sw, e, e), join(root.se, e, e, e));
+    originX -= 1L << (root.level - 2);
+    originY -= 1L << (root.level - 2);
+  }
+
+  // center of `n', one level down, after 2^j generations, where
+  // j <= n.level - 2
+  private Node step(Node n, int j) {
+    if(n.population == 0)
+      return empty(n.level - 1);
+    if(n.results == null)
+      n.results = new Node[n.level - 1];
+    if(n.results[j] != null)
+      return n.results[j];
+
+    Node result;
+    if(n.level == 2) {
+      result = stepBase(n);
+    } else {
+      // nine overlapping sub-squares, one level down
+      Node n00 = n.nw, n02 = n.ne, n20 = n.sw, n22 = n.se;
+      Node n01 = join(n.nw.ne, n.ne.nw, n.nw.se, n.ne.sw);
+      Node n10 = join(n.nw.sw, n.nw.se, n.sw.nw, n.sw.ne);
+      Node n11 = join(n.nw.se, n.ne.sw, n.sw.ne, n.se.nw);
+      Node n12 = join(n.ne.sw, n.ne.se, n.se.nw, n.se.ne);
+      Node n21 = join(n.sw.ne, n.se.nw, n.sw.se, n.se.sw);
+
+      // at full speed, spend half of the generations on each of two
+      // passes; otherwise only the second pass advances
+      boolean full = j == n.level - 2;
+      int second = full ? j - 1 : j;
+
+      Node t00 = reduce(n00, full, j), t01 = reduce(n01, full, j), t02 = reduce(n02, full, j);
+      Node t10 = reduce(n10, full, j), t11 = reduce(n11, full, j), t12 = reduce(n12, full, j);
+      Node t20 = reduce(n20, full, j), t21 = reduce(n21, full, j), t22 = reduce(n22, full, j);
+
+      result = join(step(join(t00, t01, t10, t11), second), step(join(t01, t02, t11, t12), second),
+                    step(join(t10, t11, t20, t21), second), step(join(t11, t12, t21, t22), second));
+    }
+
+    n.results[j] = result;
+    return result;
+  }
+
+  private Node reduce(Node n, boolean full, int j) {
+    return full ? step(n, j - 1) : center(n);
+  }
+
+  // one generation of the center of a 4x4 node
+  private Node stepBase(Node n) {
+    int bits = 0;
+    for(int y = 0; y < 4; y++)
+      for(int x = 0; x < 4; x++)
+        if(cellOf(n, x, y))
+          bits |= 1 << (y * 4 + x);
+
+    return join(nextCell(bits, 1, 1), nextCell(bits, 2, 1),
+                nextCell(bits, 1, 2), nextCell(bits, 2, 2));
+  }
+
+  private boolean cellOf(Node n, int x, int y) {
+    for(int half = 1 << (n.level - 1); n.level > 0; half >>= 1) {
+      boolean east = x >= half, south = y >= half;
+      n = south ? (east ? n.se : n.sw) : (east ? n.ne : n.nw);
+      x -= east ? half : 0;
+      y -= south ? half : 0;
+    }
+    return n == alive;
+  }
+
+  private Node nextCell(int bits, int x, int y) {
+    int count = 0;
+    for(int dy = -1; dy <= 1; dy++) {
+      for(int dx = -1; dx <= 1; dx++) {
+        if((dx == 0 && dy == 0) || (!diagonals && dx != 0 && dy != 0))
+          continue;
+        count += (bits >> ((y + dy) * 4 + x + dx)) & 1;
+      }
+    }
+    boolean live = ((bits >> (y * 4 + x)) & 1) != 0;
+    return (live ? survival[count] : birth[count]) ? alive : dead;
+  }
+
+  // mark the live cells of `n', whose top-left cell is at (x, y), that
+  // fall within the window [0, width) x [0, height)
+  private void collectLive(Node n, long x, long y, int width, int height, boolean live[]) {
+    long side = 1L << n.level;
+    if(n.population == 0 || x >= width || y >= height || x + side <= 0 || y + side <= 0)
+      return;
+    if(n.level == 0) {
+      live[(int) y * width + (int) x] = true;
+      return;
+    }
+
+    long half = side / 2;
+    collectLive(n.nw, x, y, width, height, live);
+    collectLive(n.ne, x + half, y, width, height, live);
+    collectLive(n.sw, x, y + half, width, height, live);
+    collectLive(n.se, x + half, y + half, width, height, live);
+  }
+
+  // drop every node not reachable from the root, and every memoized
+  // result
+  private void collect() {
+    nodes = new HashMap<>();
+    keep(root);
+    for(Node e : emptyNodes)
+      keep(e);
+  }
+
+  private void keep(Node n) {
+    if(n.level == 0 || nodes.putIfAbsent(n, n) != null)
+      return;
+    n.results = null;
+    keep(n.nw);
+    keep(n.ne);
+    keep(n.sw);
+    keep(n.se);
+  }
+
+  // A square of the universe. Nodes are compared by the identity of
+  // their quadrants, which are canonical.
+  private static final class Node {
+    final Node nw, ne, sw, se;
+    final int level;
+    final long population;
+    private final int hash;
+
+    // results[j]: center after 2^j generations, or null if not known
+    Node results[];
+
+    // leaf
+    Node(int level, long population) {
+      this.nw = this.ne = this.sw = this.se = null;
+      this.level = level;
+      this.population = population;
+      this.hash = System.identityHashCode(this);
+    }
+
+    Node(Node nw, Node ne, Node sw, Node se) {
+      this.nw = nw;
+      this.ne = ne;
+      this.sw = sw;
+      this.se = se;
+      this.level = nw.level + 1;
+      this.population = nw.population + ne.population + sw.population + se.population;
+
+      int h = System.identityHashCode(nw);
+      h = h * 31 + System.identityHashCode(ne);
+      h = h * 31 + System.identityHashCode(sw);
+      h = h * 31 + System.identityHashCode(se);
+      this.hash = h;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if(!(o instanceof Node) || nw == null)
+        return this == o;
+      Node other = (Node) o;
+      return nw == other.nw && ne == other.ne && sw == other.sw && se == other.se;
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
+}
@@ -0,0 +1,40 @@
+package cellsociety.model.engines;
+
+import cellsociety.model.CellGrid;
+import cellsociety.model.CellularAutomatonEngine;
+import cellsociety.model.CellularAutomatonRule;
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * Index containing all engines.
+ */
+public class Index {
+  /**
+   * Constructors of all engines, in order of preference.
+   */
+  public static final List<Supplier<CellularAutomatonEngine>> allEngines =
+      List.of(
+          LifeBitEngine::new,
+          PlaneTableEngine::new,
+          TiledTableEngine::new,
+          ElementaryEngine::new
+             );
+
+  /**
+   * Find the preferred engine for a grid and rule.
+   *
+   * @param grid Grid to be stepped.
+   * @param rule Rule to apply.
+   * @return A new engine which supports `grid' and `rule', or null if
+   * there is none.
+   */
+  public static CellularAutomatonEngine select(CellGrid grid, CellularAutomatonRule rule) {
+    for(Supplier<CellularAutomatonEngine> constructor : allEngines) {
+      CellularAutomatonEngine engine = constructor.get();
+      if(engine.supports(grid, rule))
+        return engine;
+    }
+    return null;
+  }
+}
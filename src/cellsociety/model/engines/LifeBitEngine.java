@@ -0,0 +1,249 @@
+package cellsociety.model.engines;
+
+import cellsociety.model.Cell;
+import cellsociety.model.CellGrid;
+import cellsociety.model.CellularAutomatonEngine;
+import cellsociety.model.CellularAutomatonRule;
+import cellsociety.model.grids.PlaneLayout;
+import cellsociety.model.grids.RectangularCellGrid;
+import cellsociety.model.rules.GameOfLifeRule;
+import cellsociety.model.states.GameOfLifeState;
+import java.util.Arrays;
+
+/**
+ * Bit-sliced engine for life-like rules on rectangular grids.
+ *
+ * Each row of the grid is packed into a long[] bitmap, 64 cells per
+ * word, with cell x at bit (x % 64) of word (x / 64). For every row,
+ * the neighbor bitmaps (the rows above and below, and all three rows
+ * shifted one cell left and right) are summed with bitwise full
+ * adders into four bit-planes holding the binary neighbor count of 64
+ * cells at once. The birth and survival sets of the rule are then
+ * applied as masks over those planes.
+ *
+ * The bitmaps are kept between steps, and reloaded from the grid
+ * after invalidate(), or if the grid was stepped by something else in
+ * between. Plane-backed grids are read and written through their raw
+ * planes, and only cells which changed are written.
+ *
+ * Both the 4- and 8-neighbor modes are supported, with or without
+ * wrapping. Bits beyond the width of the grid are always kept clear.
+ * Off-heap grids are not supported, since the bitmaps live on the
+ * heap.
+ *
+ * @author Franklin Wei
+ */
+public class LifeBitEngine extends CellularAutomatonEngine {
+  private static final GameOfLifeState ALIVE = GameOfLifeState.of(GameOfLifeState.States.ALIVE);
+  private static final GameOfLifeState DEAD = GameOfLifeState.of(GameOfLifeState.States.DEAD);
+
+  // plane values of the two states (see Dense2DCellGrid.getRawPlane())
+  private static final byte ALIVE_CODE = (byte) GameOfLifeState.States.ALIVE.ordinal();
+  private static final byte DEAD_CODE = (byte) GameOfLifeState.States.DEAD.ordinal();
+
+  // maximum neighbor count, plus one
+  private static final int COUNTS = 9;
+
+  // grid the bitmaps hold, and its time when they were last in step
+  // with it; null until loaded
+  private RectangularCellGrid grid;
+  private int loadedTime;
+
+  private int width, height, words;
+  private long tailMask;
+  private boolean wrapping, diagonals;
+  private long current[][], next[][];
+
+  // scratch rows: neighbor rows, and the bit-planes of the counts
+  private long above[], below[], west[], east[];
+  private long s0[], s1[], s2[], s3[];
+
+  // birthMask[n] / survivalMask[n] are all ones if n neighbors lead to
+  // birth / survival, else zero
+  private final long birthMask[] = new long[COUNTS];
+  private final long survivalMask[] = new long[COUNTS];
+
+  @Override
+  public boolean supports(CellGrid grid, CellularAutomatonRule rule) {
+    // our bitmaps would grow with an off-heap grid
+    return grid instanceof RectangularCellGrid && !((RectangularCellGrid) grid).isOffHeap() &&
+           rule instanceof GameOfLifeRule;
+  }
+
+  @Override
+  public void invalidate() {
+    grid = null;
+  }
+
+  @Override
+  public void step(CellGrid cellGrid, CellularAutomatonRule rule) {
+    RectangularCellGrid rect = (RectangularCellGrid) cellGrid;
+    if(rect != grid || rect.getCurrentTime() != loadedTime)
+      load(rect);
+    configure((GameOfLifeRule) rule);
+
+    for(int y = 0; y < height; y++) {
+      long row[] = current[y];
+      rowOrEmpty(y - 1, above);
+      rowOrEmpty(y + 1, below);
+
+      Arrays.fill(s0, 0);
+      Arrays.fill(s1, 0);
+      Arrays.fill(s2, 0);
+      Arrays.fill(s3, 0);
+
+      add(above, s0, s1, s2, s3);
+      add(below, s0, s1, s2, s3);
+
+      shiftWest(row, west);
+      shiftEast(row, east);
+      add(west, s0, s1, s2, s3);
+      add(east, s0, s1, s2, s3);
+
+      if(diagonals) {
+        shiftWest(above, west);
+        shiftEast(above, east);
+        add(west, s0, s1, s2, s3);
+        add(east, s0, s1, s2, s3);
+
+        shiftWest(below, west);
+        shiftEast(below, east);
+        add(west, s0, s1, s2, s3);
+        add(east, s0, s1, s2, s3);
+      }
+
+      long out[] = next[y];
+      for(int i = 0; i < words; i++) {
+        long born = 0, survives = 0;
+        for(int n = 0; n < COUNTS; n++) {
+          if((birthMask[n] | survivalMask[n]) == 0)
+            continue;
+          long eq = equals(n, s0[i], s1[i], s2[i], s3[i]);
+          born |= eq & birthMask[n];
+          survives |= eq & survivalMask[n];
+        }
+        out[i] = ((row[i] & survives) | (~row[i] & born));
+      }
+      out[words - 1] &= tailMask;
+    }
+
+    store();
+
+    long tmp[][] = current;
+    current = next;
+    next = tmp;
+    loadedTime = grid.getCurrentTime();
+  }
+
+  // derive masks from the rule's birth and survival sets, which may
+  // have changed since the last step
+  private void configure(GameOfLifeRule rule) {
+    for(int n = 0; n < COUNTS; n++) {
+      birthMask[n] = rule.isBirthCount(n) ? -1L : 0;
+      survivalMask[n] = rule.isSurvivalCount(n) ? -1L : 0;
+    }
+  }
+
+  // (re)allocate bitmaps for the grid's dimensions, and pack its
+  // current generation into `current'
+  private void load(RectangularCellGrid rect) {
+    grid = rect;
+    width = rect.getWidth();
+    height = rect.getHeight();
+    words = BitRows.words(width);
+    tailMask = BitRows.tailMask(width);
+    wrapping = rect.isWrapping();
+    diagonals = rect.getNeighborCount() == 8;
+
+    current = new long[height][words];
+    next = new long[height][words];
+    above = new long[words];
+    below = new long[words];
+    west = new long[words];
+    east = new long[words];
+    s0 = new long[words];
+    s1 = new long[words];
+    s2 = new long[words];
+    s3 = new long[words];
+
+    if(rect.usesPlanes()) {
+      byte plane[] = rect.getRawPlane(Cell.CURRENT_TIME);
+      PlaneLayout layout = rect.getPlaneLayout();
+      for(int y = 0; y < height; y++)
+        for(int x = 0; x < width; x++)
+          if(plane[layout.slotOf(y * width + x)] == ALIVE_CODE)
+            current[y][x >>> 6] |= 1L << x;
+    } else {
+      for(int y = 0; y < height; y++)
+        for(int x = 0; x < width; x++)
+          if(rect.getStateAt(y * width + x, Cell.CURRENT_TIME).getState() == GameOfLifeState.States.ALIVE)
+            current[y][x >>> 6] |= 1L << x;
+    }
+    loadedTime = rect.getCurrentTime();
+  }
+
+  // publish `next' as the following generation, writing only the
+  // cells that changed
+  private void store() {
+    grid.copyState();
+    byte plane[] = grid.usesPlanes() ? grid.getRawPlane(Cell.NEXT_TIME) : null;
+    PlaneLayout layout = grid.getPlaneLayout();
+    for(int y = 0; y < height; y++) {
+      for(int i = 0; i < words; i++) {
+        long changed = current[y][i] ^ next[y][i];
+        while(changed != 0) {
+          int bit = Long.numberOfTrailingZeros(changed);
+          changed &= changed - 1;
+          int index = y * width + i * 64 + bit;
+          boolean alive = (next[y][i] & (1L << bit)) != 0;
+          if(plane != null)
+            plane[layout.slotOf(index)] = alive ? ALIVE_CODE : DEAD_CODE;
+          else
+            grid.setStateAt(index, Cell.NEXT_TIME, alive ? ALIVE : DEAD);
+        }
+      }
+    }
+    grid.advanceCurrentTime();
+  }
+
+  // copy row `y' into `out', wrapping around if needed, or clear `out'
+  // if the row lies off the grid
+  private void rowOrEmpty(int y, long out[]) {
+    if(wrapping)
+      y = Math.floorMod(y, height);
+    if(y < 0 || y >= height)
+      Arrays.fill(out, 0);
+    else
+      System.arraycopy(current[y], 0, out, 0, words);
+  }
+
+  private void shiftWest(long row[], long out[]) {
+    BitRows.shiftWest(row, out, width, wrapping);
+  }
+
+  private void shiftEast(long row[], long out[]) {
+    BitRows.shiftEast(row, out, width, wrapping);
+  }
+
+  // add the bitmap `b' into the 4-bit counter (s3 s2 s1 s0), with a
+  // ripple of half adders
+  private void add(long b[], long s0[], long s1[], long s2[], long s3[]) {
+    for(int i = 0; i < words; i++) {
+      long carry = s0[i] & b[i];
+      s0[i] ^= b[i];
+      long c1 = s1[i] & carry;
+      s1[i] ^= carry;
+      long c2 = s2[i] & c1;
+      s2[i] ^= c1;
+      s3[i] |= c2;
+    }
+  }
+
+  // bitmask of cells whose counter equals n
+  private static long equals(int n, long s0, long s1, long s2, long s3) {
+    return ((n & 1) != 0 ? s0 : ~s0) &
+           ((n & 2) != 0 ? s1 : ~s1) &
+           ((n & 4) != 0 ? s2 : ~s2) &
+           ((n & 8) != 0 ? s3 : ~s3);
+  }
+}
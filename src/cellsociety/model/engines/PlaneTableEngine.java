@@ -0,0 +1,375 @@
+package cellsociety.model.engines;
+
+import cellsociety.model.Cell;
+import cellsociety.model.CellGrid;
+import cellsociety.model.CellState;
+import cellsociety.model.CellularAutomatonEngine;
+import cellsociety.model.CellularAutomatonRule;
+import cellsociety.model.GridCoordinates;
+import cellsociety.model.grids.Dense2DCellGrid;
+import cellsociety.model.grids.HexagonalCellGrid;
+import cellsociety.model.grids.RectangularCellGrid;
+import cellsociety.model.grids.TiledLayout;
+import cellsociety.model.util.CounterRandom;
+import cellsociety.model.util.TotalisticTable;
+
+/**
+ * Engine for outer-totalistic rules (see
+ * CellularAutomatonRule.getTotalisticTable()), deterministic or
+ * stochastic (see CellularAutomatonRule.getRandomTotalisticTable()), on
+ * any rectangular or hexagonal grid whose states are enum-only.
+ *
+ * Each generation, the grid is copied into int planes with a one-cell
+ * border: one holding the state ordinal of each cell, and one holding
+ * its weight in the rule's packed neighbor counts. The border holds
+ * the opposite edge on a wrapping grid, and weighs nothing
+ * otherwise. On a plane-backed grid, whose padded layout has the same
+ * shape, the ghost ring of the state plane is filled in place and the
+ * whole plane is widened at once. (Plane-backed grids with any other
+ * layout are not supported: tiled ones are left to TiledTableEngine,
+ * and those in Z-order are stepped cell by cell. Off-heap grids are
+ * left to TiledTableEngine too.) Every row is then
+ * handed to a TableKernel, which sums the weights at each neighbor
+ * offset and looks up the next states. When the jdk.incubator.vector module is
+ * added to the runtime, the kernel does this for several cells per
+ * instruction. On a cell-backed grid, only cells whose state changed
+ * are written back.
+ *
+ * For a stochastic rule, the kernel looks up a table in which every
+ * outcome that depends on a cell's random field is deferred (see
+ * TotalisticTable.toIntArrayDeferringField()). Only those cells -- for
+ * Fire, the trees next to a fire -- then draw their field for the
+ * generation, from a CounterRandom keyed by the seed, the generation
+ * and the cell, and are looked up again with it.
+ *
+ * When several generations of a deterministic rule are requested at
+ * once on a plane-backed grid, they are computed with temporal
+ * blocking: the grid is split
+ * into blocks of BLOCK_SIZE cells square, and each block is copied
+ * into a small window, together with a halo as wide as the number of
+ * generations computed per pass (at most MAX_DEPTH). The window is
+ * advanced that many generations while it is in cache, each one
+ * shrinking the region that is still exact by one cell on every side,
+ * and what remains of it -- the block -- is copied out.
+ *
+ * @author Franklin Wei
+ */
+public class PlaneTableEngine extends CellularAutomatonEngine {
+  /**
+   * Width and height of a block, in cells. With a halo of MAX_DEPTH
+   * on every side, the window buffers take about 100KB.
+   */
+  static final int BLOCK_SIZE = 64;
+
+  /**
+   * Largest number of generations computed per pass over the grid.
+   */
+  static final int MAX_DEPTH = 8;
+
+  private static final int WINDOW_STRIDE = BLOCK_SIZE + 2 * MAX_DEPTH;
+
+  private final TableKernel kernel;
+
+  private int width, height, paddedWidth;
+  private int states[], weights[], next[];
+  private long seed;
+
+  // double-buffered window states and weights, for temporal blocking
+  private int windowStates[][], windowWeights[][];
+
+  /**
+   * Construct an engine using the fastest kernel available.
+   */
+  public PlaneTableEngine() {
+    this(true);
+  }
+
+  /**
+   * Construct an engine, optionally forcing the scalar kernel (for
+   * comparison).
+   *
+   * @param vectorize Whether to use vector instructions if available.
+   */
+  public PlaneTableEngine(boolean vectorize) {
+    kernel = vectorize ? TableKernel.create() : new TableKernel();
+  }
+
+  /**
+   * Check whether this engine uses vector instructions.
+   *
+   * @return True if the Vector API is in use.
+   */
+  public boolean isVectorized() {
+    return kernel.isVectorized();
+  }
+
+  @Override
+  public void setSeed(long seed) {
+    this.seed = seed;
+  }
+
+  @Override
+  public boolean supports(CellGrid grid, CellularAutomatonRule rule) {
+    if(!(grid instanceof RectangularCellGrid || grid instanceof HexagonalCellGrid))
+      return false;
+
+    // our int planes would be as large as an off-heap grid
+    Dense2DCellGrid dense = (Dense2DCellGrid) grid;
+    if(dense.isOffHeap())
+      return false;
+    if(dense.usesPlanes() && !(dense.getPlaneLayout() instanceof TiledLayout &&
+                               ((TiledLayout) dense.getPlaneLayout()).isPadded()))
+      return false;
+
+    return dense.getWidth() > 0 && dense.getHeight() > 0 &&
+           CellState.getCanonicalStates(dense.getStateAt(0, Cell.CURRENT_TIME).getClass()) != null &&
+           getTable(rule, dense.getMaxNeighbors()) != null;
+  }
+
+  @Override
+  public void step(CellGrid grid, CellularAutomatonRule rule) {
+    Dense2DCellGrid dense = (Dense2DCellGrid) grid;
+    TotalisticTable table = getTable(rule, dense.getMaxNeighbors());
+    CellState canonical[] = CellState.getCanonicalStates(dense.getStateAt(0, Cell.CURRENT_TIME).getClass());
+
+    load(dense, table);
+
+    // neighbor offsets in slots, for even and odd rows (which differ
+    // on hexagonal grids)
+    int offsets[][] = { slotOffsets(dense, 0, paddedWidth), slotOffsets(dense, 1, paddedWidth) };
+    boolean random = table.getFieldSize() != 1;
+    int lookup[] = random ? table.toIntArrayDeferringField() : table.toIntArray();
+    for(int y = 0; y < height; y++)
+      kernel.stepRow(states, weights, offsets[y & 1], slot(0, y), width,
+                     lookup, table.getStride(), next);
+    if(random)
+      drawFields(table, dense.getCurrentTime());
+
+    store(dense, canonical, states, next);
+    dense.advanceCurrentTime();
+  }
+
+  @Override
+  public void step(CellGrid grid, CellularAutomatonRule rule, int generations) {
+    Dense2DCellGrid dense = (Dense2DCellGrid) grid;
+    TotalisticTable table = getTable(rule, dense.getMaxNeighbors());
+    if(generations == 1 || !dense.usesPlanes() || table.getFieldSize() != 1) {
+      // cell-backed grids must record every generation, and the
+      // windows of temporal blocking have no fields
+      super.step(grid, rule, generations);
+      return;
+    }
+
+    CellState canonical[] = CellState.getCanonicalStates(dense.getStateAt(0, Cell.CURRENT_TIME).getClass());
+
+    load(dense, table);
+    int original[] = states.clone();
+
+    if(windowStates == null) {
+      windowStates = new int[2][WINDOW_STRIDE * WINDOW_STRIDE];
+      windowWeights = new int[2][WINDOW_STRIDE * WINDOW_STRIDE];
+    }
+
+    // the outside ordinal is one past the last state, and weighs
+    // nothing
+    int outside = table.getStateCount();
+    int weightOf[] = new int[outside + 1];
+    for(int s = 0; s < outside; s++)
+      weightOf[s] = table.getWeight(s);
+
+    Block block = new Block(dense.isWrapping(), outside, weightOf, table.toIntArray(), table.getStride(),
+                            new int[][] { slotOffsets(dense, 0, WINDOW_STRIDE), slotOffsets(dense, 1, WINDOW_STRIDE) });
+
+    for(int done = 0; done < generations; ) {
+      int depth = Math.min(MAX_DEPTH, generations - done);
+      for(int by = 0; by < height; by += BLOCK_SIZE)
+        for(int bx = 0; bx < width; bx += BLOCK_SIZE)
+          block.advance(bx, by, depth);
+
+      int tmp[] = states;
+      states = next;
+      next = tmp;
+      done += depth;
+    }
+
+    store(dense, canonical, original, states);
+    dense.advanceCurrentTime(generations);
+  }
+
+  // advances one block at a time from `states' into `next'
+  private class Block {
+    private final boolean wrapping;
+    private final int outside, weightOf[], lookup[], stride, offsets[][];
+
+    Block(boolean wrapping, int outside, int weightOf[], int lookup[], int stride, int offsets[][]) {
+      this.wrapping = wrapping;
+      this.outside = outside;
+      this.weightOf = weightOf;
+      this.lookup = lookup;
+      this.stride = stride;
+      this.offsets = offsets;
+    }
+
+    // advance the block whose top-left cell is (bx, by) by `depth'
+    // generations
+    void advance(int bx, int by, int depth) {
+      int columns = Math.min(BLOCK_SIZE, width - bx), rows = Math.min(BLOCK_SIZE, height - by);
+      int spanX = columns + 2 * depth, spanY = rows + 2 * depth;
+
+      // window cell (wx, wy) is grid cell (bx - depth + wx, by - depth + wy)
+      for(int wy = 0; wy < spanY; wy++) {
+        int gy = by - depth + wy;
+        for(int wx = 0; wx < spanX; wx++) {
+          int gx = bx - depth + wx;
+          int state;
+          if(wrapping)
+            state = states[slot(Math.floorMod(gx, width), Math.floorMod(gy, height))];
+          else
+            state = gx >= 0 && gx < width && gy >= 0 && gy < height ? states[slot(gx, gy)] : outside;
+
+          int w = wy * WINDOW_STRIDE + wx;
+          windowStates[0][w] = windowStates[1][w] = state;
+          windowWeights[0][w] = windowWeights[1][w] = weightOf[state];
+        }
+      }
+
+      int current = 0;
+      for(int g = 1; g <= depth; g++) {
+        // only cells at least g cells from the window's edge are still
+        // exact after g generations
+        for(int wy = g; wy < spanY - g; wy++) {
+          int gy = by - depth + wy;
+          int from = g, to = spanX - g;
+          if(!wrapping) {
+            if(gy < 0 || gy >= height)
+              continue;
+            from = Math.max(from, depth - bx);
+            to = Math.min(to, width - bx + depth);
+          }
+          if(from >= to)
+            continue;
+
+          int start = wy * WINDOW_STRIDE + from;
+          int out[] = windowStates[1 - current], outWeights[] = windowWeights[1 - current];
+          kernel.stepRow(windowStates[current], windowWeights[current], offsets[Math.floorMod(gy, height) & 1],
+                         start, to - from, lookup, stride, out);
+          for(int w = start; w < start + to - from; w++)
+            outWeights[w] = weightOf[out[w]];
+        }
+        current = 1 - current;
+      }
+
+      for(int y = 0; y < rows; y++)
+        for(int x = 0; x < columns; x++)
+          next[slot(bx + x, by + y)] = windowStates[current][(depth + y) * WINDOW_STRIDE + depth + x];
+    }
+  }
+
+  // the rule's table, deterministic or not, or null
+  private static TotalisticTable getTable(CellularAutomatonRule rule, int maxNeighbors) {
+    TotalisticTable table = rule.getTotalisticTable(maxNeighbors);
+    return table != null ? table : rule.getRandomTotalisticTable(maxNeighbors);
+  }
+
+  // look up the cells whose next state was deferred to their field
+  // (see TotalisticTable.toIntArrayDeferringField())
+  private void drawFields(TotalisticTable table, int generation) {
+    CounterRandom random = new CounterRandom(seed);
+    for(int y = 0; y < height; y++) {
+      for(int x = 0, slot = slot(0, y); x < width; x++, slot++) {
+        if(next[slot] >= 0)
+          continue;
+        int state = states[slot];
+        random.moveTo(generation, (long) y * width + x);
+        next[slot] = table.next(state, table.drawField(state, random), -1 - next[slot]);
+      }
+    }
+  }
+
+  // copy the current generation into `states' and `weights', and fill
+  // the border
+  private void load(Dense2DCellGrid grid, TotalisticTable table) {
+    if(states == null || grid.getWidth() != width || grid.getHeight() != height) {
+      width = grid.getWidth();
+      height = grid.getHeight();
+      paddedWidth = width + 2;
+      states = new int[paddedWidth * (height + 2)];
+      weights = new int[states.length];
+      next = new int[states.length];
+    }
+
+    if(grid.usesPlanes()) {
+      loadPadded(grid, table);
+      return;
+    }
+
+    for(int y = 0; y < height; y++) {
+      for(int x = 0, slot = slot(0, y); x < width; x++, slot++) {
+        int state = grid.getStateAt(y * width + x, Cell.CURRENT_TIME).ordinal();
+        states[slot] = state;
+        weights[slot] = table.getWeight(state);
+      }
+    }
+
+    boolean wrapping = grid.isWrapping();
+    for(int y = -1; y <= height; y++) {
+      for(int x = -1; x <= width; x++) {
+        if(x >= 0 && x < width && y >= 0 && y < height)
+          continue;
+        weights[slot(x, y)] = wrapping ?
+            weights[slot(Math.floorMod(x, width), Math.floorMod(y, height))] : 0;
+      }
+    }
+  }
+
+  // load a plane-backed grid, whose padded layout matches ours slot
+  // for slot
+  private void loadPadded(Dense2DCellGrid grid, TotalisticTable table) {
+    // the outside ordinal is one past the last state, and weighs
+    // nothing
+    int outside = table.getStateCount();
+    int weightOf[] = new int[outside + 1];
+    for(int s = 0; s < outside; s++)
+      weightOf[s] = table.getWeight(s);
+
+    byte plane[] = grid.getRawPlane(Cell.CURRENT_TIME);
+    grid.getPlaneLayout().refreshHalo(plane, (byte) outside);
+    for(int slot = 0; slot < plane.length; slot++) {
+      states[slot] = plane[slot];
+      weights[slot] = weightOf[plane[slot]];
+    }
+  }
+
+  // make `after' the next generation of the grid, whose current
+  // generation is `before'
+  private void store(Dense2DCellGrid grid, CellState canonical[], int before[], int after[]) {
+    grid.copyState();
+
+    if(grid.usesPlanes()) {
+      byte plane[] = grid.getRawPlane(Cell.NEXT_TIME);
+      for(int y = 0; y < height; y++)
+        for(int slot = slot(0, y); slot < slot(width, y); slot++)
+          plane[slot] = (byte) after[slot];
+      return;
+    }
+
+    for(int y = 0; y < height; y++) {
+      for(int x = 0, slot = slot(0, y); x < width; x++, slot++) {
+        if(after[slot] != before[slot])
+          grid.setStateAt(y * width + x, Cell.NEXT_TIME, canonical[after[slot]]);
+      }
+    }
+  }
+
+  private int slot(int x, int y) {
+    return (y + 1) * paddedWidth + x + 1;
+  }
+
+  // offsets of the neighbors of a cell in a row of the given parity,
+  // in slots of a plane `stride' slots wide
+  private static int[] slotOffsets(Dense2DCellGrid grid, int parity, int stride) {
+    return grid.getNeighborOffsets(new GridCoordinates(0, parity))
+        .mapToInt(offset -> offset.getY() * stride + offset.getX())
+        .toArray();
+  }
+}
@@ -0,0 +1,67 @@
+package cellsociety.model.engines;
+
+/**
+ * Inner loop of PlaneTableEngine: applies a compiled totalistic table
+ * to a run of cells in padded int planes. This class is the scalar
+ * implementation; create() substitutes a vectorized one when the
+ * jdk.incubator.vector module is available.
+ *
+ * @author Franklin Wei
+ */
+class TableKernel {
+  private static final String VECTOR_MODULE = "jdk.incubator.vector";
+
+  /**
+   * Create the fastest kernel available in this runtime.
+   *
+   * @return A vectorized kernel if the Vector API module has been
+   * added (with --add-modules), else a scalar one.
+   */
+  static TableKernel create() {
+    // VectorTableKernel must not be loaded unless the module is
+    // present, or its first use would fail to link
+    if(ModuleLayer.boot().findModule(VECTOR_MODULE).isPresent())
+      return new VectorTableKernel();
+    return new TableKernel();
+  }
+
+  /**
+   * Check whether this kernel uses vector instructions.
+   *
+   * @return True if vectorized.
+   */
+  boolean isVectorized() {
+    return false;
+  }
+
+  /**
+   * Compute the next states of the cells in slots [start, start +
+   * length).
+   *
+   * @param states Current state ordinal of each slot.
+   * @param weights Weight (see TotalisticTable.getWeight()) of each
+   * slot's state.
+   * @param offsets Offsets of a cell's neighbors, in slots.
+   * @param start First slot.
+   * @param length Number of slots.
+   * @param table Next state ordinals, as given by
+   * TotalisticTable.toIntArray() or toIntArrayDeferringField().
+   * @param stride Table stride.
+   * @param next Receives the next state ordinals.
+   */
+  void stepRow(int states[], int weights[], int offsets[], int start, int length,
+               int table[], int stride, int next[]) {
+    stepCells(states, weights, offsets, start, start + length, table, stride, next);
+  }
+
+  // scalar loop over slots [from, to)
+  static void stepCells(int states[], int weights[], int offsets[], int from, int to,
+                        int table[], int stride, int next[]) {
+    for(int slot = from; slot < to; slot++) {
+      int packed = 0;
+      for(int offset : offsets)
+        packed += weights[slot + offset];
+      next[slot] = table[states[slot] * stride + packed];
+    }
+  }
+}
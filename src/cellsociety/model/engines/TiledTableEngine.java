@@ -0,0 +1,125 @@
+package cellsociety.model.engines;
+
+import cellsociety.model.Cell;
+import cellsociety.model.CellGrid;
+import cellsociety.model.CellularAutomatonEngine;
+import cellsociety.model.CellularAutomatonRule;
+import cellsociety.model.GridCoordinates;
+import cellsociety.model.grids.Dense2DCellGrid;
+import cellsociety.model.grids.HexagonalCellGrid;
+import cellsociety.model.grids.RectangularCellGrid;
+import cellsociety.model.grids.TiledLayout;
+import cellsociety.model.util.TotalisticTable;
+import java.nio.ByteBuffer;
+
+/**
+ * Engine for outer-totalistic rules (see
+ * CellularAutomatonRule.getTotalisticTable()) on plane-backed
+ * rectangular and hexagonal grids with a TiledLayout. Grids with the
+ * default padded layout are better served by PlaneTableEngine, which
+ * is preferred for them (see Index), unless they are off-heap: this
+ * engine reads and writes the planes in place, through
+ * Dense2DCellGrid.getPlaneBuffer(), so it works on those too.
+ *
+ * Before each generation the halos of all tiles are refreshed, with
+ * locations outside a non-wrapping grid given an extra "outside"
+ * ordinal that no rule counts. Each tile is then evaluated on its own:
+ * every neighbor of a cell is read from the tile's block at a fixed
+ * offset, and the packed neighbor counts are looked up in the rule's
+ * table.
+ *
+ * @author Franklin Wei
+ */
+public class TiledTableEngine extends CellularAutomatonEngine {
+  @Override
+  public boolean supports(CellGrid grid, CellularAutomatonRule rule) {
+    if(!(grid instanceof RectangularCellGrid || grid instanceof HexagonalCellGrid))
+      return false;
+
+    Dense2DCellGrid dense = (Dense2DCellGrid) grid;
+    return dense.usesPlanes() && dense.getPlaneLayout() instanceof TiledLayout &&
+           rule.getTotalisticTable(dense.getMaxNeighbors()) != null;
+  }
+
+  @Override
+  public void step(CellGrid grid, CellularAutomatonRule rule) {
+    Dense2DCellGrid dense = (Dense2DCellGrid) grid;
+    TiledLayout layout = (TiledLayout) dense.getPlaneLayout();
+    TotalisticTable table = rule.getTotalisticTable(dense.getMaxNeighbors());
+
+    // the outside ordinal is one past the last state, and weighs
+    // nothing
+    int outside = table.getStateCount();
+    int weights[] = new int[outside + 1];
+    for(int s = 0; s < outside; s++)
+      weights[s] = table.getWeight(s);
+
+    // neighbor offsets within a block, for even and odd rows (which
+    // differ on hexagonal grids)
+    int offsets[][] = { blockOffsets(dense, layout, 0), blockOffsets(dense, layout, 1) };
+
+    dense.copyState();
+    ByteBuffer current = null, next = null;
+    byte currentPlane[] = null, nextPlane[] = null;
+    if(dense.isOffHeap()) {
+      current = dense.getPlaneBuffer(Cell.CURRENT_TIME);
+      next = dense.getPlaneBuffer(Cell.NEXT_TIME);
+      layout.refreshHalo(current, (byte) outside);
+    } else {
+      currentPlane = dense.getRawPlane(Cell.CURRENT_TIME);
+      nextPlane = dense.getRawPlane(Cell.NEXT_TIME);
+      layout.refreshHalo(currentPlane, (byte) outside);
+    }
+
+    int tileWidth = layout.getTileWidth(), tileHeight = layout.getTileHeight();
+    int stride = layout.getStride();
+    for(int ty = 0; ty < layout.getTilesY(); ty++) {
+      int rows = Math.min(tileHeight, dense.getHeight() - ty * tileHeight);
+      for(int tx = 0; tx < layout.getTilesX(); tx++) {
+        int columns = Math.min(tileWidth, dense.getWidth() - tx * tileWidth);
+        int base = layout.getTileBase(tx, ty);
+
+        for(int y = 0; y < rows; y++) {
+          int rowOffsets[] = offsets[(ty * tileHeight + y) & 1];
+          int slot = base + (y + 1) * stride + 1;
+          if(currentPlane != null)
+            stepRow(currentPlane, nextPlane, slot, columns, rowOffsets, weights, table);
+          else
+            stepRow(current, next, slot, columns, rowOffsets, weights, table);
+        }
+      }
+    }
+
+    dense.advanceCurrentTime();
+  }
+
+  // evaluate `length' cells from `start' on, in heap planes
+  private static void stepRow(byte current[], byte next[], int start, int length,
+                              int offsets[], int weights[], TotalisticTable table) {
+    for(int slot = start; slot < start + length; slot++) {
+      int packed = 0;
+      for(int offset : offsets)
+        packed += weights[current[slot + offset]];
+      next[slot] = (byte) table.next(current[slot], packed);
+    }
+  }
+
+  // the same, in buffers (for off-heap planes)
+  private static void stepRow(ByteBuffer current, ByteBuffer next, int start, int length,
+                              int offsets[], int weights[], TotalisticTable table) {
+    for(int slot = start; slot < start + length; slot++) {
+      int packed = 0;
+      for(int offset : offsets)
+        packed += weights[current.get(slot + offset)];
+      next.put(slot, (byte) table.next(current.get(slot), packed));
+    }
+  }
+
+  // offsets of the neighbors of a cell in a row of the given parity,
+  // in slots
+  private static int[] blockOffsets(Dense2DCellGrid grid, TiledLayout layout, int parity) {
+    return grid.getNeighborOffsets(new GridCoordinates(0, parity))
+        .mapToInt(offset -> offset.getY() * layout.getStride() + offset.getX())
+        .toArray();
+  }
+}
@@ -0,0 +1,48 @@
+package cellsociety.model.engines;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * TableKernel which evaluates as many cells at once as the hardware's
+ * preferred vector width allows: neighbor weights are summed lane by
+ * lane from shifted loads of the weight plane, and combined with the
+ * states into table indices. The lookups themselves are scalar: the
+ * gather intrinsic of JDK 17 crashes the JIT-compiled code on
+ * AVX-512 hardware. The last, partial vector of a row is done by the
+ * scalar loop.
+ *
+ * Only loaded through TableKernel.create(), when the
+ * jdk.incubator.vector module is present.
+ *
+ * @author Franklin Wei
+ */
+final class VectorTableKernel extends TableKernel {
+  private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+
+  // table indices of the cells in one vector
+  private final int indices[] = new int[SPECIES.length()];
+
+  @Override
+  boolean isVectorized() {
+    return true;
+  }
+
+  @Override
+  void stepRow(int states[], int weights[], int offsets[], int start, int length,
+               int table[], int stride, int next[]) {
+    int bound = start + SPECIES.loopBound(length);
+    int slot = start;
+    for(; slot < bound; slot += SPECIES.length()) {
+      IntVector packed = IntVector.zero(SPECIES);
+      for(int offset : offsets)
+        packed = packed.add(IntVector.fromArray(SPECIES, weights, slot + offset));
+
+      IntVector.fromArray(SPECIES, states, slot).mul(stride).add(packed).intoArray(indices, 0);
+      for(int lane = 0; lane < indices.length; lane++)
+        next[slot + lane] = table[indices[lane]];
+    }
+
+    stepCells(states, weights, offsets, slot, start + length, table, stride, next);
+  }
+}
@@ -1,10 +1,13 @@
 package cellsociety.model.grids;
 
 import cellsociety.model.Cell;
+import cellsociety.model.CellIndices;
 import cellsociety.model.CellGrid;
 import cellsociety.model.CellState;
 import cellsociety.model.GridCoordinates;
+import java.nio.ByteBuffer;
 import java.util.*;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 import java.util.stream.Collectors;
 
@@ -21,13 +24,81 @@ import java.util.stream.Collectors;
  * Each grid has a certain boundary behavior specified at
  * initialization -- either wrapping or non-wrapping.
  *
+ * A grid can store its states in one of two ways. By default, every
+ * location holds a Cell object with its own StateList. Alternatively,
+ * a grid can be constructed with "state planes": two flat byte arrays
+ * holding the enum ordinals of the current and next generation, which
+ * are swapped at the end of every generation. Plane storage only works
+ * for CellStates which are fully described by their enum value (see
+ * CellState.isEnumOnly()), and keeps no history beyond the current and
+ * next generations. Cells handed out by a plane-backed grid are
+ * lightweight views that are created on demand.
+ *
+ * The planes can also be kept off the heap (see Storage.OFF_HEAP), so
+ * that grids much larger than the heap can be simulated, and the
+ * garbage collector never has to look at them. Such a grid keeps
+ * nothing on the heap whose size depends on the number of cells, and
+ * its layout cannot be changed. Its planes are freed by release().
+ *
+ * Whatever the storage, neighbors are found from the neighbor offsets
+ * of each row, which are the same for every cell of the row (see
+ * getNeighborOffsets()), wrapping or bounds checking only the ones
+ * which fall outside the grid.
+ *
+ * How cells are arranged within the planes is decided by a
+ * PlaneLayout. By default, the planes are padded: cells are stored in
+ * row-major order, surrounded by a one-cell ghost ring which an engine
+ * can fill with the opposite edge (on a wrapping grid) or an "outside"
+ * value before each generation, so that edge cells can be evaluated
+ * with the same code as interior ones. They can also be arranged in
+ * square tiles with halos (see setTileSize()). Either way, rules see
+ * the same neighbors as on a cell-backed grid.
+ *
+ * Both kinds of grid can instead keep their cells in Z-order (see
+ * setZOrder()), which keeps nearby cells close in memory in every
+ * direction, and makes the grid iterate in that order.
+ *
  * @author Franklin Wei
  */
 public abstract class Dense2DCellGrid extends CellGrid {
   private int width, height;
-  private Cell cells[][];
+  private Cell cells[];
   private boolean wrapping;
 
+  private byte currentPlane[], nextPlane[];
+  private OffHeapPlanes offHeapPlanes;
+  private CellState palette[];
+  private PlaneLayout layout;
+
+  // storage and iteration order, or null for row-major order
+  private MortonLayout zOrder;
+
+  private volatile int maxNeighbors;
+
+  // neighbor offsets of each row, as (dx, dy) pairs; computed on first
+  // use, since the offsets are defined by subclasses
+  private volatile int rowOffsets[][];
+
+  /**
+   * Ways a dense grid can store its states.
+   */
+  public enum Storage {
+    /**
+     * One Cell object, with its own StateList, per location.
+     */
+    CELLS,
+
+    /**
+     * State planes in byte arrays on the heap.
+     */
+    PLANES,
+
+    /**
+     * State planes in direct buffers outside the heap.
+     */
+    OFF_HEAP
+  }
+
   /**
    * Initialize a dense 2D grid of width `w' and height
    * `h'. Optionally wrapping.
@@ -37,15 +108,239 @@ public abstract class Dense2DCellGrid extends CellGrid {
    * @param wrapping Whether to wrap.
    */
   public Dense2DCellGrid(int w, int h, boolean wrapping) {
+    this(w, h, wrapping, false);
+  }
+
+  /**
+   * Initialize a dense 2D grid of width `w' and height `h',
+   * optionally wrapping, and optionally backed by state planes
+   * instead of Cell objects.
+   *
+   * @param w Width.
+   * @param h Height.
+   * @param wrapping Whether to wrap.
+   * @param usePlanes Whether to store states in primitive planes.
+   */
+  public Dense2DCellGrid(int w, int h, boolean wrapping, boolean usePlanes) {
+    this(w, h, wrapping, usePlanes ? Storage.PLANES : Storage.CELLS);
+  }
+
+  /**
+   * Initialize a dense 2D grid of width `w' and height `h',
+   * optionally wrapping, with the given kind of storage.
+   *
+   * @param w Width.
+   * @param h Height.
+   * @param wrapping Whether to wrap.
+   * @param storage How to store states.
+   */
+  public Dense2DCellGrid(int w, int h, boolean wrapping, Storage storage) {
     System.out.printf("Construct %dx%d grid\n", w, h);
     width = w;
     height = h;
-    cells = new Cell[h][w];
     this.wrapping = wrapping;
 
+    if(storage == Storage.OFF_HEAP) {
+      layout = TiledLayout.padded(w, h, wrapping);
+      offHeapPlanes = new OffHeapPlanes(layout.getPlaneSize());
+      return;
+    }
+
+    if(storage == Storage.PLANES) {
+      layout = TiledLayout.padded(w, h, wrapping);
+      currentPlane = new byte[layout.getPlaneSize()];
+      nextPlane = new byte[layout.getPlaneSize()];
+      return;
+    }
+
+    cells = new Cell[w * h];
     for(int y = 0; y < h; y++)
       for(int x = 0; x < w; x++)
-        cells[y][x] = new Cell(this, new GridCoordinates(x, y));
+        cells[y * w + x] = new Cell(this, new GridCoordinates(x, y));
+  }
+
+  /**
+   * Check whether this grid stores its states in primitive planes.
+   *
+   * @return True if plane-backed, false if backed by Cell objects.
+   */
+  public boolean usesPlanes() {
+    return cells == null;
+  }
+
+  /**
+   * Check whether this grid keeps its state planes outside the heap.
+   *
+   * @return True if the storage is Storage.OFF_HEAP.
+   */
+  public boolean isOffHeap() {
+    return offHeapPlanes != null;
+  }
+
+  /**
+   * Free the off-heap planes of this grid, without waiting for the
+   * garbage collector. The grid must not be used afterwards: any
+   * access to its states throws IllegalStateException. Does nothing
+   * for a grid whose states are on the heap.
+   */
+  public void release() {
+    if(isOffHeap())
+      offHeapPlanes.release();
+  }
+
+  /**
+   * Arrange the state planes in square tiles of the given size, each
+   * surrounded by a halo (see TiledLayout), or in a single padded
+   * tile. The states of all cells are preserved.
+   *
+   * @param tileSize Width and height of a tile, or 0 for the default
+   * padded layout.
+   * @throws IllegalStateException if the grid is not plane-backed, or
+   * is off-heap.
+   */
+  public void setTileSize(int tileSize) {
+    if(!usesPlanes())
+      throw new IllegalStateException("only plane-backed grids can be tiled");
+    if(isOffHeap())
+      throw new IllegalStateException("off-heap grids keep the padded layout");
+    if(tileSize < 0)
+      throw new IllegalArgumentException("tile size must not be negative");
+
+    zOrder = null;
+    relayout(tileSize == 0 ? TiledLayout.padded(width, height, wrapping)
+                           : new TiledLayout(width, height, wrapping, tileSize));
+  }
+
+  /**
+   * Store and iterate over cells in Z-order (see MortonLayout), or in
+   * row-major order. On a plane-backed grid this replaces the plane
+   * layout, which is padded again when Z-order is turned off. The
+   * states of all cells are preserved.
+   *
+   * @param enabled Whether to use Z-order.
+   * @throws IllegalStateException if the grid is off-heap.
+   */
+  public void setZOrder(boolean enabled) {
+    if(isOffHeap())
+      throw new IllegalStateException("off-heap grids keep the padded layout");
+
+    MortonLayout newOrder = enabled ? new MortonLayout(width, height) : null;
+
+    if(usesPlanes()) {
+      zOrder = newOrder;
+      relayout(enabled ? newOrder : TiledLayout.padded(width, height, wrapping));
+      return;
+    }
+
+    Cell newCells[] = new Cell[cells.length];
+    for(int index = 0; index < cells.length; index++)
+      newCells[newOrder == null ? index : newOrder.slotOf(index)] = cells[cellSlot(index)];
+    zOrder = newOrder;
+    cells = newCells;
+  }
+
+  /**
+   * Check whether cells are stored and iterated over in Z-order.
+   *
+   * @return True if in Z-order, false if in row-major order.
+   */
+  public boolean isZOrder() {
+    return zOrder != null;
+  }
+
+  // move the planes to a new layout
+  private void relayout(PlaneLayout newLayout) {
+    byte newCurrent[] = new byte[newLayout.getPlaneSize()];
+    byte newNext[] = new byte[newLayout.getPlaneSize()];
+    for(int index = 0; index < width * height; index++) {
+      newCurrent[newLayout.slotOf(index)] = currentPlane[layout.slotOf(index)];
+      newNext[newLayout.slotOf(index)] = nextPlane[layout.slotOf(index)];
+    }
+
+    layout = newLayout;
+    currentPlane = newCurrent;
+    nextPlane = newNext;
+  }
+
+  // position of a row-major index in `cells'
+  private int cellSlot(int index) {
+    return zOrder == null ? index : zOrder.slotOf(index);
+  }
+
+  /**
+   * Retrieve the arrangement of cells within the state planes. Only
+   * valid for plane-backed grids.
+   *
+   * @return Current PlaneLayout.
+   */
+  public PlaneLayout getPlaneLayout() {
+    return layout;
+  }
+
+  /**
+   * Retrieve a state plane itself, for engines which operate on the
+   * ordinals directly. Slots are arranged according to
+   * getPlaneLayout(), and must only be assigned valid ordinals of the
+   * grid's state enum. Only valid for plane-backed grids on the heap.
+   *
+   * @param delta CURRENT_TIME or NEXT_TIME.
+   * @return The plane holding that generation.
+   * @throws IllegalStateException if the grid is off-heap.
+   */
+  public byte[] getRawPlane(int delta) {
+    if(isOffHeap())
+      throw new IllegalStateException("off-heap planes are only available as buffers");
+    return getPlane(delta);
+  }
+
+  /**
+   * Retrieve a state plane as a ByteBuffer, which works for both
+   * on-heap and off-heap planes; see getRawPlane(). Only absolute get
+   * and put operations should be used on it. Only valid for
+   * plane-backed grids.
+   *
+   * @param delta CURRENT_TIME or NEXT_TIME.
+   * @return The plane holding that generation.
+   */
+  public ByteBuffer getPlaneBuffer(int delta) {
+    if(!isOffHeap())
+      return ByteBuffer.wrap(getPlane(delta));
+
+    switch(delta) {
+      case Cell.CURRENT_TIME:
+        return offHeapPlanes.getCurrent();
+      case Cell.NEXT_TIME:
+        return offHeapPlanes.getNext();
+      default:
+        throw new IllegalArgumentException("state planes only hold the current and next generations");
+    }
+  }
+
+  /**
+   * Retrieve the width of this grid.
+   *
+   * @return Width.
+   */
+  public int getWidth() {
+    return width;
+  }
+
+  /**
+   * Retrieve the height of this grid.
+   *
+   * @return Height.
+   */
+  public int getHeight() {
+    return height;
+  }
+
+  /**
+   * Check whether this grid wraps toroidally.
+   *
+   * @return True if wrapping.
+   */
+  public boolean isWrapping() {
+    return wrapping;
   }
 
   /**
@@ -80,9 +375,20 @@ public abstract class Dense2DCellGrid extends CellGrid {
       // range [0, width).
       x = ((x % width) + width) % width;
       y = ((y % height) + height) % height;
+      coords = new GridCoordinates(x, y);
     }
 
-    return cells[y][x];
+    return cellAt(x, y, coords);
+  }
+
+  // (x, y) must be in bounds; `coords' may be null
+  private Cell cellAt(int x, int y, GridCoordinates coords) {
+    if(!usesPlanes())
+      return cells[cellSlot(y * width + x)];
+
+    if(coords == null)
+      coords = new GridCoordinates(x, y);
+    return new PlaneCell(this, coords, y * width + x);
   }
 
   /**
@@ -101,6 +407,169 @@ public abstract class Dense2DCellGrid extends CellGrid {
    */
   abstract public Stream<GridCoordinates> getNeighborOffsets(GridCoordinates center);
 
+  /**
+   * Retrieve the row-major index (y * width + x) of a location.
+   *
+   * @param coords In-bounds coordinates.
+   * @return Index of that location.
+   */
+  public int indexOf(GridCoordinates coords) {
+    return coords.getY() * width + coords.getX();
+  }
+
+  /**
+   * Retrieve the row-major index of the location (x, y), after
+   * wrapping. Indices of a Dense2DCellGrid always fit in an int.
+   *
+   * @param x X coordinate.
+   * @param y Y coordinate.
+   * @return Index of the location, or NO_CELL if it is out of bounds.
+   */
+  @Override
+  public long indexOf(int x, int y) {
+    int index = wrapIndex(x, y);
+    return index < 0 ? NO_CELL : index;
+  }
+
+  @Override
+  public GridCoordinates coordinatesOf(long index) {
+    return new GridCoordinates((int) (index % width), (int) (index / width));
+  }
+
+  /**
+   * Retrieve the Cell at a row-major index.
+   *
+   * @param index Index in [0, width * height).
+   * @return Cell at that index.
+   */
+  public Cell getCell(int index) {
+    if(!usesPlanes())
+      return cells[cellSlot(index)];
+    return cellAt(index % width, index / width, null);
+  }
+
+  /**
+   * Retrieve the state of the cell at a row-major index, at time
+   * delta + currentTime.
+   *
+   * @param index Index in [0, width * height).
+   * @param delta Time offset from current time.
+   * @return State at that location and time.
+   */
+  public CellState getStateAt(int index, int delta) {
+    if(usesPlanes())
+      return getPlaneState(index, delta);
+    return cells[cellSlot(index)].getState(delta);
+  }
+
+  @Override
+  public CellState getStateAt(long index, int delta) {
+    return getStateAt((int) index, delta);
+  }
+
+  /**
+   * Modify the state of the cell at a row-major index, at time delta
+   * + currentTime.
+   *
+   * @param index Index in [0, width * height).
+   * @param delta Time offset from current time.
+   * @param state The new CellState to assign.
+   */
+  public void setStateAt(int index, int delta, CellState state) {
+    if(usesPlanes())
+      setPlaneState(index, delta, state);
+    else
+      cells[cellSlot(index)].setState(delta, state);
+  }
+
+  @Override
+  public void setStateAt(long index, int delta, CellState state) {
+    setStateAt((int) index, delta, state);
+  }
+
+  @Override
+  public int getMaxNeighbors() {
+    int max = maxNeighbors;
+    if(max == 0) {
+      for(int y = 0; y < height; y++)
+        max = Math.max(max, (int) getNeighborOffsets(new GridCoordinates(0, y)).count());
+      maxNeighbors = max;
+    }
+    return max;
+  }
+
+  /**
+   * Retrieve the index of the k-th neighbor of the cell at `index',
+   * without allocating. Neighbors are numbered in the same order as
+   * getNeighborOffsets() yields them.
+   *
+   * @param index Index of the center cell.
+   * @param k Neighbor slot in [0, getMaxNeighbors()).
+   * @return Index of the neighbor, or -1 if it is out of bounds.
+   */
+  public int neighborIndex(int index, int k) {
+    int y = index / width, x = index - y * width;
+    int offsets[] = getRowOffsets()[y];
+    if(2 * k >= offsets.length)
+      return -1;
+    return wrapIndex(x + offsets[2 * k], y + offsets[2 * k + 1]);
+  }
+
+  @Override
+  public long neighborIndex(long index, int k) {
+    int neighbor = neighborIndex((int) index, k);
+    return neighbor < 0 ? NO_CELL : neighbor;
+  }
+
+  /**
+   * Retrieve the neighbors of `center' through the row offsets.
+   *
+   * @param center Central cell.
+   * @return List of in-bounds neighbors of `center'.
+   */
+  @Override
+  public List<Cell> getNeighbors(Cell center) {
+    int index = indexOf(center.getCoordinates());
+    int count = getMaxNeighbors();
+    List<Cell> neighbors = new ArrayList<>(count);
+    for(int k = 0; k < count; k++) {
+      int neighbor = neighborIndex(index, k);
+      if(neighbor >= 0)
+        neighbors.add(getCell(neighbor));
+    }
+    return neighbors;
+  }
+
+  private int[][] getRowOffsets() {
+    int offsets[][] = rowOffsets;
+    if(offsets == null) {
+      // the offsets of rectangular and hexagonal grids depend on the
+      // row only
+      offsets = new int[height][];
+      for(int y = 0; y < height; y++)
+        offsets[y] = getNeighborOffsets(new GridCoordinates(0, y))
+            .flatMapToInt(offset -> IntStream.of(offset.getX(), offset.getY()))
+            .toArray();
+      rowOffsets = offsets;
+    }
+    return offsets;
+  }
+
+  // index of (x, y) after wrapping, or -1 if out of bounds; only
+  // neighbors of cells at the border get past the bounds check
+  private int wrapIndex(int x, int y) {
+    boolean inBounds = (0 <= x && x < width) && (0 <= y && y < height);
+
+    if(!inBounds) {
+      if(!wrapping)
+        return -1;
+      x = ((x % width) + width) % width;
+      y = ((y % height) + height) % height;
+    }
+
+    return y * width + x;
+  }
+
   @Override
   public Collection<GridCoordinates> getNeighborCoordinates(GridCoordinates center) {
     return getNeighborOffsets(center)
@@ -108,15 +577,14 @@ public abstract class Dense2DCellGrid extends CellGrid {
         .collect(Collectors.toList());
   }
 
+  // walks over positions [start, end) of the iteration order
   private class Dense2DGridIterator implements Iterator<Cell> {
-    private final Cell grid[][];
     private int index = 0;
     private final int total;
 
-    public Dense2DGridIterator(Cell grid[][]) {
-      this.grid = grid;
-      this.index = 0;
-      this.total = grid.length * grid[0].length;
+    public Dense2DGridIterator(int start, int end) {
+      this.index = start;
+      this.total = end;
     }
 
     @Override
@@ -131,7 +599,8 @@ public abstract class Dense2DCellGrid extends CellGrid {
 
     @Override
     public Cell next() {
-      Cell c = grid[index / grid[0].length][index % grid[0].length];
+      int cell = zOrder == null ? index : zOrder.indexAt(index);
+      Cell c = cellAt(cell % width, cell / width, null);
       this.remove();
       return c;
     }
@@ -139,7 +608,199 @@ public abstract class Dense2DCellGrid extends CellGrid {
 
   @Override
   public Iterator<Cell> iterator() {
-    return new Dense2DGridIterator(cells);
+    return new Dense2DGridIterator(0, width * height);
+  }
+
+  /**
+   * Split this grid into at most `parts' bands of consecutive rows,
+   * or in Z-order, of consecutive runs of cells.
+   *
+   * @param parts Desired number of bands.
+   * @return List of disjoint bands covering the whole grid.
+   */
+  @Override
+  public List<Iterable<Cell>> partition(int parts) {
+    parts = Math.max(1, Math.min(parts, height));
+
+    List<Iterable<Cell>> bands = new ArrayList<>();
+    for(int i = 0; i < parts; i++) {
+      int start = bandStart(i, parts);
+      int end = bandStart(i + 1, parts);
+      bands.add(() -> new Dense2DGridIterator(start, end));
+    }
+
+    return bands;
+  }
+
+  /**
+   * Split this grid into the same bands as partition(), given by
+   * index.
+   *
+   * @param parts Desired number of bands.
+   * @return List of disjoint bands covering the whole grid.
+   */
+  @Override
+  public List<CellIndices> partitionIndices(int parts) {
+    parts = Math.max(1, Math.min(parts, height));
+
+    List<CellIndices> bands = new ArrayList<>();
+    for(int i = 0; i < parts; i++) {
+      int start = bandStart(i, parts);
+      int end = bandStart(i + 1, parts);
+      bands.add(() -> new Dense2DIndexIterator(start, end));
+    }
+
+    return bands;
+  }
+
+  // walks over the indices at positions [start, end) of the iteration
+  // order
+  private class Dense2DIndexIterator implements PrimitiveIterator.OfLong {
+    private int position;
+    private final int end;
+
+    Dense2DIndexIterator(int start, int end) {
+      this.position = start;
+      this.end = end;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return position < end;
+    }
+
+    @Override
+    public long nextLong() {
+      if(!hasNext())
+        throw new NoSuchElementException();
+      int index = position++;
+      return zOrder == null ? index : zOrder.indexAt(index);
+    }
+  }
+
+  // first position of the i-th of `parts' bands
+  private int bandStart(int i, int parts) {
+    if(zOrder == null)
+      return (int) ((long) height * i / parts) * width;
+    return (int) ((long) width * height * i / parts);
+  }
+
+  /**
+   * Make all cell states at time T + 1 equal to those at T. On a
+   * plane-backed grid this is a single array copy; Cells carry their
+   * states forward by themselves (see CellGrid).
+   */
+  @Override
+  public void copyState() {
+    if(!usesPlanes()) {
+      super.copyState();
+      return;
+    }
+
+    if(isOffHeap())
+      offHeapPlanes.copyCurrentToNext();
+    else
+      System.arraycopy(currentPlane, 0, nextPlane, 0, currentPlane.length);
+  }
+
+  /**
+   * Increments currentTime. On a plane-backed grid, this also swaps
+   * the current and next state planes.
+   */
+  @Override
+  public void advanceCurrentTime() {
+    if(isOffHeap()) {
+      offHeapPlanes.swap();
+    } else if(usesPlanes()) {
+      byte tmp[] = currentPlane;
+      currentPlane = nextPlane;
+      nextPlane = tmp;
+    }
+
+    super.advanceCurrentTime();
+  }
+
+  /**
+   * Advance currentTime by several generations at once, making the
+   * next state plane current. Only valid for plane-backed grids, which
+   * keep no history that the skipped generations would be missing
+   * from.
+   *
+   * @param generations Number of generations, at least 1.
+   * @throws IllegalStateException if this grid is not plane-backed.
+   */
+  public void advanceCurrentTime(int generations) {
+    if(!usesPlanes())
+      throw new IllegalStateException("only plane-backed grids can skip generations");
+    if(generations < 1)
+      throw new IllegalArgumentException("generation count must be at least 1");
+
+    advanceCurrentTime();
+    for(int i = 1; i < generations; i++)
+      super.advanceCurrentTime();
+  }
+
+  private byte[] getPlane(int delta) {
+    switch(delta) {
+      case Cell.CURRENT_TIME:
+        return currentPlane;
+      case Cell.NEXT_TIME:
+        return nextPlane;
+      default:
+        throw new IllegalArgumentException("state planes only hold the current and next generations");
+    }
+  }
+
+  /**
+   * Retrieve the state stored in a plane at a given index and time
+   * delta. Only valid for plane-backed grids.
+   *
+   * @param index Row-major index (y * width + x).
+   * @param delta CURRENT_TIME or NEXT_TIME.
+   * @return CellState at that location and time.
+   */
+  CellState getPlaneState(int index, int delta) {
+    if(isOffHeap())
+      return palette[getPlaneBuffer(delta).get(layout.slotOf(index))];
+    return palette[getPlane(delta)[layout.slotOf(index)]];
+  }
+
+  /**
+   * Store a state into a plane at a given index and time delta. Only
+   * valid for plane-backed grids.
+   *
+   * @param index Row-major index (y * width + x).
+   * @param delta CURRENT_TIME or NEXT_TIME.
+   * @param state State to store.
+   */
+  void setPlaneState(int index, int delta, CellState state) {
+    if(isOffHeap())
+      getPlaneBuffer(delta).put(layout.slotOf(index), encode(state));
+    else
+      getPlane(delta)[layout.slotOf(index)] = encode(state);
+  }
+
+  // map a state to its ordinal, building the palette on first use
+  private byte encode(CellState state) {
+    Enum<?> value = (Enum<?>) state.getState();
+
+    if(palette == null)
+      palette = buildPalette(state);
+
+    assert(palette[value.ordinal()].getClass() == state.getClass());
+
+    return (byte) value.ordinal();
+  }
+
+  // the canonical CellState of each enum constant of `state's enum
+  // type
+  private static CellState[] buildPalette(CellState state) {
+    CellState palette[] = CellState.getCanonicalStates(state.getClass());
+    if(palette == null)
+      throw new IllegalArgumentException(state.getClass().getSimpleName() + " cannot be stored in state planes");
+    assert(palette.length <= Byte.MAX_VALUE);
+
+    return palette;
   }
 
   /**
@@ -157,8 +818,12 @@ public abstract class Dense2DCellGrid extends CellGrid {
     for(int y = 0; y < height; y++) {
       assert(states[y].length == width);
 
-      for(int x = 0; x < width; x++)
-        cells[y][x].appendState(states[y][x]);
+      for(int x = 0; x < width; x++) {
+        if(usesPlanes())
+          setPlaneState(y * width + x, Cell.NEXT_TIME, states[y][x]);
+        else
+          cells[cellSlot(y * width + x)].appendState(states[y][x]);
+      }
     }
 
     advanceCurrentTime();
@@ -171,13 +836,14 @@ public abstract class Dense2DCellGrid extends CellGrid {
    * @return 2D array in row-major order containing all CellStates
    * at the given time delta.
    */
+  @Override
   public CellState[][] extractStates(int delta) {
     System.out.printf("Extract at delta=%d -> %dx%d\n", delta, width, height);
     CellState states[][] = new CellState[height][width];
 
     for(int y = 0; y < height; y++) {
       for(int x = 0; x < width; x++) {
-        states[y][x] = getCell(new GridCoordinates(x, y)).getState(delta);
+        states[y][x] = getStateAt(y * width + x, delta);
       }
     }
 
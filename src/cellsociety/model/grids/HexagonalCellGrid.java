@@ -103,6 +103,32 @@ public class HexagonalCellGrid extends Dense2DCellGrid {
    * @param wrapping Whether to torodially wrap.
    */
   public HexagonalCellGrid(int w, int h, boolean wrapping) {
-    super(w, h, wrapping);
+    this(w, h, wrapping, false);
+  }
+
+  /**
+   * Construct a new HexagonalCellGrid, optionally backed by state
+   * planes (see Dense2DCellGrid).
+   *
+   * @param w Width.
+   * @param h Height.
+   * @param wrapping Whether to torodially wrap.
+   * @param usePlanes Whether to store states in primitive planes.
+   */
+  public HexagonalCellGrid(int w, int h, boolean wrapping, boolean usePlanes) {
+    super(w, h, wrapping, usePlanes);
+  }
+
+  /**
+   * Construct a new HexagonalCellGrid with the given kind of storage
+   * (see Dense2DCellGrid).
+   *
+   * @param w Width.
+   * @param h Height.
+   * @param wrapping Whether to torodially wrap.
+   * @param storage How to store states.
+   */
+  public HexagonalCellGrid(int w, int h, boolean wrapping, Storage storage) {
+    super(w, h, wrapping, storage);
   }
 }
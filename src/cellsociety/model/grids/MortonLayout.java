@@ -0,0 +1,86 @@
+package cellsociety.model.grids;
+
+/**
+ * A layout which stores cells in Z-order (Morton order): the grid is
+ * split into quadrants, which are stored one after the other (top
+ * left, top right, bottom left, bottom right), each of them laid out
+ * the same way in turn. Cells which are close on the grid in any
+ * direction are thus usually close in memory too, which row-major
+ * order only achieves horizontally.
+ *
+ * Grids whose sides are not powers of two are treated as the top-left
+ * corner of one that is, with the missing cells skipped, so that
+ * there is exactly one slot per cell.
+ *
+ * Besides being a PlaneLayout, a MortonLayout gives the order in which
+ * a Dense2DCellGrid stores its Cells and walks over them (see
+ * Dense2DCellGrid.setZOrder()).
+ *
+ * @author Franklin Wei
+ */
+public class MortonLayout extends PlaneLayout {
+  private final int width, height;
+
+  // slot of each row-major index, and row-major index in each slot
+  private final int slots[], indices[];
+  private int filled;
+
+  /**
+   * Create a Z-order layout for a grid.
+   *
+   * @param width Grid width.
+   * @param height Grid height.
+   */
+  public MortonLayout(int width, int height) {
+    this.width = width;
+    this.height = height;
+
+    slots = new int[width * height];
+    indices = new int[width * height];
+
+    int size = 1;
+    while(size < width || size < height)
+      size *= 2;
+    visit(0, 0, size);
+  }
+
+  // assign slots to the cells of the square of side `size' at
+  // (x0, y0), in Z-order
+  private void visit(int x0, int y0, int size) {
+    if(x0 >= width || y0 >= height)
+      return;
+
+    if(size == 1) {
+      int index = y0 * width + x0;
+      slots[index] = filled;
+      indices[filled++] = index;
+      return;
+    }
+
+    int half = size / 2;
+    visit(x0, y0, half);
+    visit(x0 + half, y0, half);
+    visit(x0, y0 + half, half);
+    visit(x0 + half, y0 + half, half);
+  }
+
+  /**
+   * Retrieve the cell stored in a slot.
+   *
+   * @param slot Slot in [0, width * height).
+   * @return Row-major index of the cell in that slot.
+   */
+  public int indexAt(int slot) {
+    return indices[slot];
+  }
+
+  @Override
+  public int getPlaneSize() {
+    return slots.length;
+  }
+
+  @Override
+  public int slotOf(int index) {
+    return slots[index];
+  }
+}
@@ -0,0 +1,126 @@
+package cellsociety.model.grids;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+
+/**
+ * The current and next state planes of an off-heap Dense2DCellGrid,
+ * held in direct ByteBuffers outside the Java heap.
+ *
+ * Direct buffers are normally only freed once the garbage collector
+ * finds them unreachable, which may be long after the grid is done
+ * with them, since the small buffer objects put no pressure on the
+ * heap. release() frees them right away instead, through
+ * sun.misc.Unsafe.invokeCleaner(), which is looked up reflectively;
+ * where it is unavailable, release() merely drops the buffers.
+ *
+ * @author Franklin Wei
+ */
+class OffHeapPlanes {
+  private static final Object UNSAFE;
+  private static final Method INVOKE_CLEANER;
+
+  static {
+    Object unsafe = null;
+    Method invokeCleaner = null;
+    try {
+      Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+      Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+      theUnsafe.setAccessible(true);
+      unsafe = theUnsafe.get(null);
+      invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+    } catch(ReflectiveOperationException | RuntimeException e) {
+      unsafe = null;
+      invokeCleaner = null;
+    }
+    UNSAFE = unsafe;
+    INVOKE_CLEANER = invokeCleaner;
+  }
+
+  private ByteBuffer current, next;
+
+  /**
+   * Allocate two zeroed planes.
+   *
+   * @param size Plane size, in bytes.
+   */
+  OffHeapPlanes(int size) {
+    current = ByteBuffer.allocateDirect(size);
+    next = ByteBuffer.allocateDirect(size);
+  }
+
+  /**
+   * Retrieve the current plane.
+   *
+   * @return Current plane.
+   * @throws IllegalStateException if the planes were released.
+   */
+  ByteBuffer getCurrent() {
+    checkLive();
+    return current;
+  }
+
+  /**
+   * Retrieve the next plane.
+   *
+   * @return Next plane.
+   * @throws IllegalStateException if the planes were released.
+   */
+  ByteBuffer getNext() {
+    checkLive();
+    return next;
+  }
+
+  /**
+   * Copy the current plane into the next one.
+   */
+  void copyCurrentToNext() {
+    checkLive();
+    next.put(0, current, 0, current.capacity());
+  }
+
+  /**
+   * Make the next plane current, and vice versa.
+   */
+  void swap() {
+    ByteBuffer tmp = current;
+    current = next;
+    next = tmp;
+  }
+
+  /**
+   * Check whether release() was called.
+   *
+   * @return True if the planes are gone.
+   */
+  boolean isReleased() {
+    return current == null;
+  }
+
+  /**
+   * Free both planes. Any further access throws
+   * IllegalStateException; releasing twice does nothing.
+   */
+  void release() {
+    if(isReleased())
+      return;
+
+    ByteBuffer planes[] = { current, next };
+    current = next = null;
+
+    if(INVOKE_CLEANER == null)
+      return;
+    try {
+      for(ByteBuffer plane : planes)
+        INVOKE_CLEANER.invoke(UNSAFE, plane);
+    } catch(ReflectiveOperationException e) {
+      // the buffers will be freed once they are collected
+    }
+  }
+
+  private void checkLive() {
+    if(isReleased())
+      throw new IllegalStateException("off-heap grid has been released");
+  }
+}
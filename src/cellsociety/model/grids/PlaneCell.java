@@ -0,0 +1,66 @@
+package cellsociety.model.grids;
+
+import cellsociety.model.Cell;
+import cellsociety.model.CellState;
+import cellsociety.model.GridCoordinates;
+import cellsociety.model.util.StateList;
+
+/**
+ * A Cell which does not own any states, but is instead a lightweight
+ * view onto a location in the state planes of a plane-backed
+ * Dense2DCellGrid. PlaneCells are created on demand, and two
+ * PlaneCells referring to the same location are interchangeable.
+ *
+ * @author Franklin Wei
+ */
+class PlaneCell extends Cell {
+  private final Dense2DCellGrid grid;
+  private final int index;
+
+  /**
+   * Construct a view onto the location at row-major index `index'.
+   *
+   * @param grid Parent grid, which must be plane-backed.
+   * @param coordinates Location on parent grid.
+   * @param index Row-major index of the location.
+   */
+  PlaneCell(Dense2DCellGrid grid, GridCoordinates coordinates, int index) {
+    super(grid, coordinates, null);
+    this.grid = grid;
+    this.index = index;
+  }
+
+  @Override
+  public void setState(int delta, CellState state) {
+    grid.setPlaneState(index, delta, state);
+  }
+
+  @Override
+  public CellState getState(int delta) {
+    return grid.getPlaneState(index, delta);
+  }
+
+  /**
+   * Plane-backed cells keep no history, so this returns a snapshot
+   * holding only the current state. Changing the snapshot does not
+   * change the cell.
+   *
+   * @return One-entry StateList of the current state.
+   */
+  @Override
+  public StateList<CellState> getStates() {
+    StateList<CellState> snapshot = new StateList<>(1);
+    snapshot.addState(grid.getCurrentTime(), getState(CURRENT_TIME));
+    return snapshot;
+  }
+
+  @Override
+  public void copyState() {
+    grid.setPlaneState(index, NEXT_TIME, grid.getPlaneState(index, CURRENT_TIME));
+  }
+
+  @Override
+  public void appendState(CellState state) {
+    grid.setPlaneState(index, NEXT_TIME, state);
+  }
+}
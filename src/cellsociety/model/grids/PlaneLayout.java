@@ -0,0 +1,52 @@
+package cellsociety.model.grids;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Arrangement of the cells of a plane-backed Dense2DCellGrid within
+ * its state planes. A layout maps each cell, by row-major index, to
+ * its "home" slot in a plane. Planes may hold extra slots besides the
+ * home slots, e.g. halos which duplicate the states of neighboring
+ * cells, which refreshHalo() brings up to date.
+ *
+ * @author Franklin Wei
+ */
+public abstract class PlaneLayout {
+  /**
+   * Retrieve the number of slots in a plane.
+   *
+   * @return Plane size, in bytes.
+   */
+  public abstract int getPlaneSize();
+
+  /**
+   * Retrieve the home slot of a cell.
+   *
+   * @param index Row-major index (y * width + x).
+   * @return Slot of the cell's state in a plane.
+   */
+  public abstract int slotOf(int index);
+
+  /**
+   * Bring every slot other than home slots up to date with the home
+   * slots of `plane'. The default implementation does nothing, as
+   * there are no other slots.
+   *
+   * @param plane State plane to update.
+   * @param outside Value to store for locations outside a
+   * non-wrapping grid.
+   */
+  public void refreshHalo(byte plane[], byte outside) {
+  }
+
+  /**
+   * Bring every slot other than home slots up to date, in a plane
+   * held in a buffer (see Dense2DCellGrid.getPlaneBuffer()).
+   *
+   * @param plane State plane to update.
+   * @param outside Value to store for locations outside a
+   * non-wrapping grid.
+   */
+  public void refreshHalo(ByteBuffer plane, byte outside) {
+  }
+}
@@ -32,6 +32,15 @@ public class RectangularCellGrid extends Dense2DCellGrid {
     new GridCoordinates(-1,-1)
   };
 
+  /**
+   * Retrieve the number of neighbors in a neighborhood.
+   *
+   * @return 4 or 8.
+   */
+  public int getNeighborCount() {
+    return neighborCount;
+  }
+
   @Override
   public Stream<GridCoordinates> getNeighborOffsets(GridCoordinates center) {
     Stream<GridCoordinates> offsets = Arrays.stream(directOffsets);
@@ -55,7 +64,41 @@ public class RectangularCellGrid extends Dense2DCellGrid {
    */
   public RectangularCellGrid(int w, int h,
                              boolean wrapping, int neighbors) {
-    super(w, h, wrapping);
+    this(w, h, wrapping, neighbors, false);
+  }
+
+  /**
+   * Construct a new RectangularCellGrid, optionally backed by state
+   * planes (see Dense2DCellGrid).
+   *
+   * @param w Width.
+   * @param h Height.
+   * @param wrapping Whether to torodially wrap.
+   * @param neighbors Number of neighbors in a neighborhood. Must be 4
+   * or 8.
+   * @param usePlanes Whether to store states in primitive planes.
+   */
+  public RectangularCellGrid(int w, int h,
+                             boolean wrapping, int neighbors,
+                             boolean usePlanes) {
+    this(w, h, wrapping, neighbors, usePlanes ? Storage.PLANES : Storage.CELLS);
+  }
+
+  /**
+   * Construct a new RectangularCellGrid with the given kind of
+   * storage (see Dense2DCellGrid).
+   *
+   * @param w Width.
+   * @param h Height.
+   * @param wrapping Whether to torodially wrap.
+   * @param neighbors Number of neighbors in a neighborhood. Must be 4
+   * or 8.
+   * @param storage How to store states.
+   */
+  public RectangularCellGrid(int w, int h,
+                             boolean wrapping, int neighbors,
+                             Storage storage) {
+    super(w, h, wrapping, storage);
     assert(neighbors == 4 || neighbors == 8);
     this.neighborCount = neighbors;
   }
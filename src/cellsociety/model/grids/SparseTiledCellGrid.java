@@ -0,0 +1,419 @@
+package cellsociety.model.grids;
+
+import cellsociety.model.Cell;
+import cellsociety.model.CellGrid;
+import cellsociety.model.CellState;
+import cellsociety.model.CellularAutomatonRule;
+import cellsociety.model.GridCoordinates;
+import cellsociety.model.util.StateList;
+import cellsociety.model.util.TotalisticTable;
+import java.util.*;
+
+/**
+ * Unbounded four- or eight- neighbor rectangular CellGrid, of which
+ * only the area around non-background cells is stored.
+ *
+ * The plane is divided into square tiles of TILE_SIZE x TILE_SIZE
+ * cells, kept in a hash map. Every cell outside of a stored tile is
+ * in the background state; retrieving such a cell yields a
+ * placeholder which reads as background, and which stores its tile on
+ * first write.
+ *
+ * At the start of each generation (in copyState()), every tile
+ * holding a non-background cell gets its eight surrounding tiles
+ * stored, so that any cell which could change is stored. Tiles which
+ * hold only background cells, and are not next to such a tile, are
+ * freed. Memory use and step time thus follow the live area rather
+ * than its bounding box. This requires that a background cell
+ * surrounded by background cells stays background, which supports()
+ * checks of a rule.
+ *
+ * For display, the grid has a fixed window with its top-left cell at
+ * the origin, which extractStates() and appendStates() work on.
+ *
+ * @author Franklin Wei
+ */
+public class SparseTiledCellGrid extends CellGrid {
+  /**
+   * Width and height of a tile, in cells.
+   */
+  public static final int TILE_SIZE = 16;
+
+  private final int windowWidth, windowHeight;
+  private final int neighborCount;
+  private final CellState background;
+  private final Map<Long, Tile> tiles = new HashMap<>();
+
+  /**
+   * Construct an empty SparseTiledCellGrid.
+   *
+   * @param windowWidth Width of the display window.
+   * @param windowHeight Height of the display window.
+   * @param neighbors Number of neighbors in a neighborhood. Must be 4
+   * or 8.
+   * @param background State of every cell which is not stored.
+   */
+  public SparseTiledCellGrid(int windowWidth, int windowHeight, int neighbors, CellState background) {
+    assert(neighbors == 4 || neighbors == 8);
+    this.windowWidth = windowWidth;
+    this.windowHeight = windowHeight;
+    this.neighborCount = neighbors;
+    this.background = background;
+  }
+
+  /**
+   * Check whether a rule can be stepped on this grid. Cells away from
+   * every non-background cell are not stored, and so never evaluated:
+   * the rule must be local, and always keep a background cell whose
+   * neighbors are all background in the background. That is read off
+   * the table of an outer-totalistic rule (see
+   * CellularAutomatonRule.getTotalisticTable()). Any other rule must
+   * have no spontaneous transitions (see
+   * CellularAutomatonRule.supportsActiveRegion()), so that such a cell
+   * does the same every generation, and is then applied once to one.
+   *
+   * @param rule Rule to check.
+   * @return True if stepping the rule here gives the same result as on
+   * an unbounded grid of which every cell is stored.
+   */
+  public boolean supports(CellularAutomatonRule rule) {
+    if(!rule.isLocal())
+      return false;
+    TotalisticTable table = rule.getTotalisticTable(neighborCount);
+    if(table != null) {
+      int state = background.ordinal();
+      return table.next(state, table.pack(state, neighborCount)) == state;
+    }
+    return rule.supportsActiveRegion() && keepsBackground(rule);
+  }
+
+  // apply a rule to a background cell, in the middle of a tile of
+  // background on a grid of its own
+  private boolean keepsBackground(CellularAutomatonRule rule) {
+    SparseTiledCellGrid probe = new SparseTiledCellGrid(1, 1, neighborCount, background);
+    probe.appendStates(new CellState[][] { { background } });
+
+    Cell center = probe.store(0, 0).cellAt(TILE_SIZE / 2, TILE_SIZE / 2);
+    center.copyState();
+    rule.advanceCellState(center, probe.getNeighbors(center));
+    return isBackground(center.getState(Cell.NEXT_TIME));
+  }
+
+  /**
+   * Retrieve the width of the display window.
+   *
+   * @return Window width.
+   */
+  public int getWidth() {
+    return windowWidth;
+  }
+
+  /**
+   * Retrieve the height of the display window.
+   *
+   * @return Window height.
+   */
+  public int getHeight() {
+    return windowHeight;
+  }
+
+  /**
+   * Retrieve the background state.
+   *
+   * @return State of every cell which is not stored.
+   */
+  public CellState getBackground() {
+    return background;
+  }
+
+  /**
+   * Retrieve the number of stored tiles.
+   *
+   * @return Tile count.
+   */
+  public int getTileCount() {
+    return tiles.size();
+  }
+
+  /**
+   * Retrieve the cell at `coords'. Every coordinate is in bounds, so
+   * this never returns null.
+   *
+   * @param coords Requested cell coordinates.
+   * @return The stored Cell, or a background placeholder.
+   */
+  @Override
+  public Cell getCell(GridCoordinates coords) {
+    Tile tile = tiles.get(key(tileOf(coords.getX()), tileOf(coords.getY())));
+    if(tile == null)
+      return new BackgroundCell(coords);
+    return tile.cellAt(coords.getX(), coords.getY());
+  }
+
+  /**
+   * Retrieve the index of the location (x, y). Indices of a
+   * SparseTiledCellGrid are the packed coordinates, and every
+   * location has one.
+   *
+   * @param x X coordinate.
+   * @param y Y coordinate.
+   * @return Index of the location.
+   */
+  @Override
+  public long indexOf(int x, int y) {
+    return pack(x, y);
+  }
+
+  @Override
+  public CellState getStateAt(long index, int delta) {
+    int x = (int) (index >> 32), y = (int) index;
+    Tile tile = tiles.get(key(tileOf(x), tileOf(y)));
+    if(tile == null)
+      return background;
+    return tile.cellAt(x, y).getState(delta);
+  }
+
+  @Override
+  public void setStateAt(long index, int delta, CellState state) {
+    int x = (int) (index >> 32), y = (int) index;
+    store(tileOf(x), tileOf(y)).cellAt(x, y).setState(delta, state);
+  }
+
+  @Override
+  public int getMaxNeighbors() {
+    return neighborCount;
+  }
+
+  @Override
+  public long neighborIndex(long index, int k) {
+    GridCoordinates offset = k < RectangularCellGrid.directOffsets.length ?
+        RectangularCellGrid.directOffsets[k] :
+        RectangularCellGrid.diagonalOffsets[k - RectangularCellGrid.directOffsets.length];
+    return pack((int) (index >> 32) + offset.getX(), (int) index + offset.getY());
+  }
+
+  @Override
+  protected Collection<GridCoordinates> getNeighborCoordinates(GridCoordinates center) {
+    List<GridCoordinates> neighbors = new ArrayList<>(neighborCount);
+    for(GridCoordinates offset : RectangularCellGrid.directOffsets)
+      neighbors.add(offset.add(center));
+    if(neighborCount == 8) {
+      for(GridCoordinates offset : RectangularCellGrid.diagonalOffsets)
+        neighbors.add(offset.add(center));
+    }
+    return neighbors;
+  }
+
+  @Override
+  public Iterator<Cell> iterator() {
+    return new TileIterator(new ArrayList<>(tiles.values()));
+  }
+
+  /**
+   * Split the stored tiles into at most `parts' groups.
+   *
+   * @param parts Desired number of groups.
+   * @return List of disjoint groups of Cells covering all stored tiles.
+   */
+  @Override
+  public List<Iterable<Cell>> partition(int parts) {
+    List<Tile> all = new ArrayList<>(tiles.values());
+    parts = Math.max(1, Math.min(parts, all.size()));
+
+    List<Iterable<Cell>> groups = new ArrayList<>();
+    for(int i = 0; i < parts; i++) {
+      List<Tile> group = all.subList(all.size() * i / parts, all.size() * (i + 1) / parts);
+      groups.add(() -> new TileIterator(group));
+    }
+    return groups;
+  }
+
+  /**
+   * Store the tiles around live areas, free unneeded tiles, then copy
+   * all cell states from time T to T + 1.
+   */
+  @Override
+  public void copyState() {
+    reshape();
+    super.copyState();
+  }
+
+  /**
+   * Append states[y][x] to the cell at (x, y) in the display window,
+   * and the background state to every other stored cell, then
+   * increment the simulation time.
+   *
+   * @param states 2D array in row-major order, of the size of the
+   * display window.
+   */
+  public void appendStates(CellState states[][]) {
+    assert(states.length == windowHeight);
+    for(int y = 0; y < windowHeight; y++) {
+      assert(states[y].length == windowWidth);
+      for(int x = 0; x < windowWidth; x++) {
+        if(!isBackground(states[y][x]))
+          store(tileOf(x), tileOf(y));
+      }
+    }
+
+    for(Tile tile : tiles.values()) {
+      for(Cell c : tile.cells) {
+        int x = c.getCoordinates().getX(), y = c.getCoordinates().getY();
+        boolean inWindow = x >= 0 && y >= 0 && x < windowWidth && y < windowHeight;
+        c.appendState(inWindow ? states[y][x] : background);
+      }
+    }
+
+    advanceCurrentTime();
+  }
+
+  /**
+   * Extract a snapshot of the CellStates of the display window at time
+   * `delta + currentTime'.
+   *
+   * @param delta Time delta at which to retrieve a snapshot.
+   * @return 2D array in row-major order containing the window's
+   * CellStates at the given time delta.
+   */
+  @Override
+  public CellState[][] extractStates(int delta) {
+    CellState states[][] = new CellState[windowHeight][windowWidth];
+    for(int y = 0; y < windowHeight; y++)
+      for(int x = 0; x < windowWidth; x++)
+        states[y][x] = getStateAt(pack(x, y), delta);
+    return states;
+  }
+
+  private boolean isBackground(CellState state) {
+    return state.getState() == background.getState();
+  }
+
+  // store the neighborhood of every live tile, and drop all other tiles
+  private void reshape() {
+    Set<Long> live = new HashSet<>();
+    for(Map.Entry<Long, Tile> e : tiles.entrySet())
+      if(!e.getValue().isEmpty())
+        live.add(e.getKey());
+
+    Set<Long> needed = new HashSet<>();
+    for(long k : live) {
+      int tx = (int) (k >> 32), ty = (int) k;
+      for(int dy = -1; dy <= 1; dy++)
+        for(int dx = -1; dx <= 1; dx++)
+          needed.add(key(tx + dx, ty + dy));
+    }
+
+    tiles.keySet().retainAll(needed);
+    for(long k : needed)
+      store((int) (k >> 32), (int) k);
+  }
+
+  // store tile (tx, ty) if it is not yet stored
+  private Tile store(int tx, int ty) {
+    return tiles.computeIfAbsent(key(tx, ty), k -> new Tile(tx, ty));
+  }
+
+  private static int tileOf(int coordinate) {
+    return Math.floorDiv(coordinate, TILE_SIZE);
+  }
+
+  private static long key(int tx, int ty) {
+    return pack(tx, ty);
+  }
+
+  // A stored square of cells, in row-major order.
+  private class Tile {
+    final int originX, originY;
+    final Cell cells[] = new Cell[TILE_SIZE * TILE_SIZE];
+
+    // new cells are background from the current time on (which,
+    // mid-step, carries forward to T + 1)
+    Tile(int tx, int ty) {
+      originX = tx * TILE_SIZE;
+      originY = ty * TILE_SIZE;
+      for(int i = 0; i < cells.length; i++) {
+        Cell c = new Cell(SparseTiledCellGrid.this,
+                          new GridCoordinates(originX + i % TILE_SIZE, originY + i / TILE_SIZE));
+        if(getCurrentTime() >= 0)
+          c.getStates().addState(getCurrentTime(), background);
+        cells[i] = c;
+      }
+    }
+
+    Cell cellAt(int x, int y) {
+      return cells[(y - originY) * TILE_SIZE + (x - originX)];
+    }
+
+    boolean isEmpty() {
+      for(Cell c : cells)
+        if(!isBackground(c.getState(Cell.CURRENT_TIME)))
+          return false;
+      return true;
+    }
+  }
+
+  // iterates over the cells of a list of tiles
+  private static class TileIterator implements Iterator<Cell> {
+    private final List<Tile> tiles;
+    private int tile = 0, index = 0;
+
+    TileIterator(List<Tile> tiles) {
+      this.tiles = tiles;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return tile < tiles.size();
+    }
+
+    @Override
+    public Cell next() {
+      if(!hasNext())
+        throw new NoSuchElementException();
+      Cell c = tiles.get(tile).cells[index++];
+      if(index == TILE_SIZE * TILE_SIZE) {
+        tile++;
+        index = 0;
+      }
+      return c;
+    }
+  }
+
+  // A cell outside of every stored tile. It reads as background, and
+  // stores its tile before being written to.
+  private class BackgroundCell extends Cell {
+    BackgroundCell(GridCoordinates coordinates) {
+      super(SparseTiledCellGrid.this, coordinates, null);
+    }
+
+    private Cell stored() {
+      GridCoordinates coords = getCoordinates();
+      return store(tileOf(coords.getX()), tileOf(coords.getY())).cellAt(coords.getX(), coords.getY());
+    }
+
+    @Override
+    public CellState getState(int delta) {
+      return background;
+    }
+
+    @Override
+    public void setState(int delta, CellState state) {
+      stored().setState(delta, state);
+    }
+
+    @Override
+    public StateList<CellState> getStates() {
+      return stored().getStates();
+    }
+
+    @Override
+    public void copyState() {
+      stored().copyState();
+    }
+
+    @Override
+    public void appendState(CellState state) {
+      stored().appendState(state);
+    }
+  }
+}
@@ -0,0 +1,245 @@
+package cellsociety.model.grids;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A PlaneLayout which divides the grid into rectangular tiles, each
+ * stored contiguously in row-major order, and surrounded by a one-cell
+ * halo.
+ *
+ * A tile of W x H cells occupies a block of (W + 2) x (H + 2) slots,
+ * whose interior W x H slots are the home slots of the tile's cells. After
+ * refreshHalo(), every other slot of the block holds the state of the
+ * cell it stands for: the neighboring cell on an adjacent tile, the
+ * wrapped-around cell on a wrapping grid, or an "outside" value past
+ * the edge of a non-wrapping grid. (Interior slots past the edge of
+ * the grid, on tiles which overhang it, are treated the same way.)
+ *
+ * The neighbors of any cell can thus be read from its own block at
+ * fixed offsets, with no bounds or wrapping checks.
+ *
+ * A padded layout (see padded()) is the special case of a single tile
+ * covering the whole grid: the grid in row-major order, surrounded by
+ * a one-cell ghost ring. This is the default layout of plane-backed
+ * grids.
+ *
+ * @author Franklin Wei
+ */
+public class TiledLayout extends PlaneLayout {
+  private final int width, height, tileWidth, tileHeight, stride, blockSize;
+  private final int tilesX, tilesY;
+
+  // home slot of each row-major index, or null for a padded layout,
+  // where it is computed instead
+  private final int slots[];
+
+  // pairs of (slot, source slot), where the source is -1 for slots
+  // outside a non-wrapping grid
+  private final int halo[];
+
+  /**
+   * Create a tiled layout for a grid, with square tiles.
+   *
+   * @param width Grid width.
+   * @param height Grid height.
+   * @param wrapping Whether the grid wraps.
+   * @param tileSize Width and height of a tile; must be positive.
+   */
+  public TiledLayout(int width, int height, boolean wrapping, int tileSize) {
+    this(width, height, wrapping, tileSize, tileSize);
+  }
+
+  /**
+   * Create a tiled layout for a grid.
+   *
+   * @param width Grid width.
+   * @param height Grid height.
+   * @param wrapping Whether the grid wraps.
+   * @param tileWidth Width of a tile; must be positive.
+   * @param tileHeight Height of a tile; must be positive.
+   */
+  public TiledLayout(int width, int height, boolean wrapping, int tileWidth, int tileHeight) {
+    if(tileWidth < 1 || tileHeight < 1)
+      throw new IllegalArgumentException("tile size must be positive");
+
+    this.width = width;
+    this.height = height;
+    this.tileWidth = tileWidth;
+    this.tileHeight = tileHeight;
+    this.stride = tileWidth + 2;
+    this.blockSize = stride * (tileHeight + 2);
+    this.tilesX = (width + tileWidth - 1) / tileWidth;
+    this.tilesY = (height + tileHeight - 1) / tileHeight;
+
+    if(isPadded()) {
+      slots = null;
+    } else {
+      slots = new int[width * height];
+      for(int y = 0; y < height; y++)
+        for(int x = 0; x < width; x++)
+          slots[y * width + x] = getTileBase(x / tileWidth, y / tileHeight) +
+                                 (y % tileHeight + 1) * stride + x % tileWidth + 1;
+    }
+
+    halo = buildHalo(wrapping);
+  }
+
+  /**
+   * Create a padded layout for a grid: a single tile holding the
+   * whole grid, surrounded by a one-cell ghost ring. Cell (x, y) is at
+   * slot (y + 1) * (width + 2) + x + 1.
+   *
+   * @param width Grid width.
+   * @param height Grid height.
+   * @param wrapping Whether the grid wraps.
+   * @return New layout.
+   */
+  public static TiledLayout padded(int width, int height, boolean wrapping) {
+    return new TiledLayout(width, height, wrapping, Math.max(width, 1), Math.max(height, 1));
+  }
+
+  // list the halo slots of every tile with their sources, visiting
+  // only those slots, so that a padded layout of a huge grid does not
+  // walk (or store anything for) its interior
+  private int[] buildHalo(boolean wrapping) {
+    int count = 0;
+    for(int ty = 0; ty < tilesY; ty++)
+      for(int tx = 0; tx < tilesX; tx++)
+        count += blockSize - columnsOf(tx) * rowsOf(ty);
+
+    int pairs[] = new int[2 * count];
+    int n = 0;
+
+    for(int ty = 0; ty < tilesY; ty++) {
+      for(int tx = 0; tx < tilesX; tx++) {
+        int base = getTileBase(tx, ty);
+        int columns = columnsOf(tx), rows = rowsOf(ty);
+        for(int sy = 0; sy < tileHeight + 2; sy++) {
+          boolean haloRow = sy == 0 || sy > rows;
+          for(int sx = 0; sx < stride; sx++) {
+            // skip the home slots of the row
+            if(!haloRow && sx == 1)
+              sx = columns + 1;
+
+            int x = tx * tileWidth + sx - 1, y = ty * tileHeight + sy - 1;
+            boolean inGrid = x >= 0 && y >= 0 && x < width && y < height;
+
+            int source = -1;
+            if(inGrid)
+              source = slotOf(y * width + x);
+            else if(wrapping)
+              source = slotOf(Math.floorMod(y, height) * width + Math.floorMod(x, width));
+
+            pairs[n++] = base + sy * stride + sx;
+            pairs[n++] = source;
+          }
+        }
+      }
+    }
+
+    assert(n == pairs.length);
+    return pairs;
+  }
+
+  // number of columns of the grid covered by tile column `tx'
+  private int columnsOf(int tx) {
+    return Math.min(tileWidth, width - tx * tileWidth);
+  }
+
+  // number of rows of the grid covered by tile row `ty'
+  private int rowsOf(int ty) {
+    return Math.min(tileHeight, height - ty * tileHeight);
+  }
+
+  /**
+   * Retrieve the width of a tile.
+   *
+   * @return Tile width, in cells.
+   */
+  public int getTileWidth() {
+    return tileWidth;
+  }
+
+  /**
+   * Retrieve the height of a tile.
+   *
+   * @return Tile height, in cells.
+   */
+  public int getTileHeight() {
+    return tileHeight;
+  }
+
+  /**
+   * Check whether this is a padded layout, i.e. a single tile exactly
+   * covers the whole grid.
+   *
+   * @return True if the tile is the size of the grid.
+   */
+  public boolean isPadded() {
+    return tileWidth == width && tileHeight == height;
+  }
+
+  /**
+   * Retrieve the distance between vertically adjacent slots of a
+   * tile's block (the tile width plus two).
+   *
+   * @return Row stride, in slots.
+   */
+  public int getStride() {
+    return stride;
+  }
+
+  /**
+   * Retrieve the number of tile columns.
+   *
+   * @return Tiles across the grid.
+   */
+  public int getTilesX() {
+    return tilesX;
+  }
+
+  /**
+   * Retrieve the number of tile rows.
+   *
+   * @return Tiles down the grid.
+   */
+  public int getTilesY() {
+    return tilesY;
+  }
+
+  /**
+   * Retrieve the first slot of a tile's block (the top-left halo
+   * slot).
+   *
+   * @param tx Tile column.
+   * @param ty Tile row.
+   * @return Slot index.
+   */
+  public int getTileBase(int tx, int ty) {
+    return (ty * tilesX + tx) * blockSize;
+  }
+
+  @Override
+  public int getPlaneSize() {
+    return tilesX * tilesY * blockSize;
+  }
+
+  @Override
+  public int slotOf(int index) {
+    if(slots == null)
+      return (index / width + 1) * stride + index % width + 1;
+    return slots[index];
+  }
+
+  @Override
+  public void refreshHalo(byte plane[], byte outside) {
+    for(int i = 0; i < halo.length; i += 2)
+      plane[halo[i]] = halo[i + 1] < 0 ? outside : plane[halo[i + 1]];
+  }
+
+  @Override
+  public void refreshHalo(ByteBuffer plane, byte outside) {
+    for(int i = 0; i < halo.length; i += 2)
+      plane.put(halo[i], halo[i + 1] < 0 ? outside : plane.get(halo[i + 1]));
+  }
+}
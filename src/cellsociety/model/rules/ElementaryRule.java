@@ -5,7 +5,6 @@ import cellsociety.model.states.ElementaryState;
 import cellsociety.model.states.ElementaryState.*;
 
 import java.util.*;
-import java.util.stream.*;
 
 /**
  * Implementation of a 1-D elementary cellular automaton on a 2D grid,
@@ -25,6 +24,8 @@ public class ElementaryRule extends CellularAutomatonRule {
   private static final GridCoordinates timeDirection = new GridCoordinates(0, 1);
   private static final GridCoordinates indexDirection = new GridCoordinates(1, 0);
 
+  private static final int ALIVE = States.ALIVE.ordinal();
+
   /**
    * Construct a rule with the given parameter map.
    *
@@ -36,31 +37,65 @@ public class ElementaryRule extends CellularAutomatonRule {
     setGameSpecifics(params);
   }
 
-  private GridCoordinates getDelta(Cell center, Cell other) {
-    return other.getCoordinates().subtract(center.getCoordinates());
-  }
-
   /**
    * This method is called every step, and updates the cell's state under certain conditions
    *
-   * @param center this is the cell which's state will be updated
-   * @param neighbors this is all 8 neighbors of cell
+   * @param neighborhood the cell which's state will be updated, and its neighbors
    */
   @Override
-  public void advanceCellState(Cell center, List<Cell> neighbors) {
-    if(center.getState(Cell.CURRENT_TIME).getState() == States.ALIVE)
+  public void advanceCellState(Neighborhood neighborhood) {
+    if(neighborhood.getCenterState(Cell.CURRENT_TIME).getState() == States.ALIVE)
       return; // preserve this state
 
-    neighbors = neighbors.stream()
-                .filter(other -> getDelta(center, other).dot(timeDirection) < 0)
-                .sorted((o1, o2) -> getDelta(center, o1).dot(indexDirection) < getDelta(center, o2).dot(indexDirection) ? -1 : 1)
-                .collect(Collectors.toList());
+    // the neighbors in the previous row, in order along it (ties, if
+    // a narrow wrapping grid has any, by neighbor number): repeatedly
+    // take the first one after the last one taken
+    int state = 0, last = -1, lastIndex = Integer.MIN_VALUE;
+    while(true) {
+      int next = -1, nextIndex = 0;
+      for(int k = 0; k < neighborhood.size(); k++) {
+        if(dot(neighborhood, k, timeDirection) >= 0)
+          continue;
+        int index = dot(neighborhood, k, indexDirection);
+        boolean after = index > lastIndex || (index == lastIndex && k > last);
+        if(after && (next < 0 || index < nextIndex)) {
+          next = k;
+          nextIndex = index;
+        }
+      }
+      if(next < 0)
+        break;
 
-    int state = 0;
-    for(int i = 0; i < neighbors.size(); i++)
-      state = (state << 1) | (neighbors.get(i).getState(Cell.CURRENT_TIME).getState() == States.ALIVE ? 1 : 0);
+      state = (state << 1) | (neighborhood.getOrdinal(next) == ALIVE ? 1 : 0);
+      last = next;
+      lastIndex = nextIndex;
+    }
 
-    center.setState(Cell.NEXT_TIME, new ElementaryState((rule >> state & 1) == 1 ? States.ALIVE : States.DEAD));
+    neighborhood.setNextState(ElementaryState.of((rule >> state & 1) == 1 ? States.ALIVE : States.DEAD));
+  }
+
+  // position of neighbor k relative to the center along `direction'
+  private static int dot(Neighborhood neighborhood, int k, GridCoordinates direction) {
+    return neighborhood.getOffsetX(k) * direction.getX() + neighborhood.getOffsetY(k) * direction.getY();
+  }
+
+  @Override
+  public boolean isLocal() {
+    return true;
+  }
+
+  @Override
+  public boolean supportsActiveRegion() {
+    return true;
+  }
+
+  /**
+   * Retrieve the rule as a Wolfram code.
+   *
+   * @return Rule number in [0, 255].
+   */
+  public int getRule() {
+    return rule;
   }
 
   /**
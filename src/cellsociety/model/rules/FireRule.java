@@ -2,11 +2,14 @@ package cellsociety.model.rules;
 
 import cellsociety.model.Cell;
 import cellsociety.model.CellularAutomatonRule;
+import cellsociety.model.Neighborhood;
+import cellsociety.model.Region;
+import cellsociety.model.RegionKernel;
 import cellsociety.model.states.FireState;
 import cellsociety.model.states.FireState.States;
-import java.util.List;
+import cellsociety.model.util.CounterRandom;
+import cellsociety.model.util.TotalisticTable;
 import java.util.Map;
-import java.util.Random;
 
 /**
  *
@@ -40,7 +43,11 @@ import java.util.Random;
  * grid.advanceCurrentTime();
  *
  */
-public class FireRule extends CellularAutomatonRule {
+public class FireRule extends CellularAutomatonRule implements RegionKernel {
+
+  private static final byte EMPTY = (byte) States.EMPTY.ordinal();
+  private static final byte TREE = (byte) States.TREE.ordinal();
+  private static final byte BURNING = (byte) States.BURNING.ordinal();
 
   private int fireChance;
 
@@ -55,40 +62,120 @@ public class FireRule extends CellularAutomatonRule {
   }
 
   @Override
-  public void advanceCellState(Cell cell, List<Cell> neighbors) {
-    if(cell.getState(Cell.CURRENT_TIME).getState() == States.TREE){
-      neighborsOnFire(cell, neighbors);
+  public void advanceCellState(Neighborhood neighborhood) {
+    Enum<?> state = neighborhood.getCenterState(Cell.CURRENT_TIME).getState();
+    if(state == States.TREE){
+      neighborsOnFire(neighborhood);
     }
-    if (cell.getState(Cell.CURRENT_TIME).getState() == States.BURNING){
-      dieOut(cell);
+    if (state == States.BURNING){
+      dieOut(neighborhood);
     }
   }
 
-  private void neighborsOnFire(Cell cell, List<Cell> neighbors){
-    for(Cell neighbor : neighbors){
-      if (neighbor.getState(Cell.CURRENT_TIME).getState() == States.BURNING &&
-          didCatchFire()) {
-        burn(cell);
+  private void neighborsOnFire(Neighborhood neighborhood){
+    for(int k = 0; k < neighborhood.size(); k++){
+      if (neighborhood.getOrdinal(k) == BURNING &&
+          didCatchFire(neighborhood.getRandom())) {
+        burn(neighborhood);
         break;
       }
     }
   }
 
-  private boolean didCatchFire(){
-    Random rand = new Random();
+  @Override
+  public void advanceRegion(Region region) {
+    byte source[] = region.getSource(), destination[] = region.getDestination();
+
+    for(int y = 0; y < region.getHeight(); y++) {
+      int offsets[] = region.getOffsets(y);
+      int start = region.getOrigin() + y * region.getStride();
+      for(int slot = start; slot < start + region.getWidth(); slot++) {
+        if(source[slot] == TREE) {
+          // draws in neighbor order, as advanceCellState() does
+          CounterRandom rand = null;
+          for(int offset : offsets) {
+            if(source[slot + offset] != BURNING)
+              continue;
+            if(rand == null)
+              rand = region.getRandom(y, slot - start);
+            if(didCatchFire(rand)) {
+              destination[slot] = BURNING;
+              break;
+            }
+          }
+        } else if(source[slot] == BURNING) {
+          destination[slot] = EMPTY;
+        }
+      }
+    }
+  }
+
+  /**
+   * Fire compiled into a table, with the field of a tree being the
+   * number of draws it fails before the first one which would set it
+   * on fire (or maxNeighbors, if none of the first maxNeighbors
+   * would). Since a tree draws once per burning neighbor, in order, it
+   * catches fire exactly when it has more burning neighbors than that.
+   *
+   * @param maxNeighbors Largest number of neighbors a cell may have.
+   * @return Table equivalent to advanceCellState().
+   */
+  @Override
+  public TotalisticTable getRandomTotalisticTable(int maxNeighbors) {
+    boolean counted[] = new boolean[States.values().length];
+    counted[BURNING] = true;
+    return new TotalisticTable(counted.length, counted, maxNeighbors, new TotalisticTable.RandomTransition() {
+        @Override
+        public int getFieldSize(int maxNeighbors) {
+          return maxNeighbors + 1;
+        }
+
+        @Override
+        public int draw(int state, int maxNeighbors, CounterRandom random) {
+          int failures = 0;
+          while(failures < maxNeighbors && !didCatchFire(random))
+            failures++;
+          return failures;
+        }
+
+        @Override
+        public int next(int state, int field, int counts[]) {
+          if(state == TREE)
+            return counts[BURNING] > field ? BURNING : TREE;
+          return EMPTY;
+        }
+      });
+  }
+
+  private boolean didCatchFire(CounterRandom rand){
     return (rand.nextInt(100) <= fireChance);
   }
 
-  private void dieOut(Cell cell){
-    cell.setState(Cell.NEXT_TIME, new FireState(States.EMPTY));
+  private void dieOut(Neighborhood neighborhood){
+    neighborhood.setNextState(FireState.of(States.EMPTY));
   }
 
-  private void burn(Cell cell){
-    cell.setState(Cell.NEXT_TIME, new FireState(States.BURNING));
+  private void burn(Neighborhood neighborhood){
+    neighborhood.setNextState(FireState.of(States.BURNING));
   }
 
 
 
+  @Override
+  public boolean isLocal() {
+    return true;
+  }
+
+  /**
+   * Fire is stochastic, but has no spontaneous transitions: a tree only
+   * catches fire from a burning neighbor, and a burning cell always
+   * burns out (and so changes) in the next generation.
+   */
+  @Override
+  public boolean supportsActiveRegion() {
+    return true;
+  }
+
   /**
    * This method gets the specific rule set for the Fire variation,
    * with one parameter:
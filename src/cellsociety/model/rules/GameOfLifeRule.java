@@ -1,8 +1,11 @@
 package cellsociety.model.rules;
 
-import cellsociety.model.Cell;
 import cellsociety.model.states.GameOfLifeState;
 import cellsociety.model.CellularAutomatonRule;
+import cellsociety.model.Neighborhood;
+import cellsociety.model.Region;
+import cellsociety.model.RegionKernel;
+import cellsociety.model.util.TotalisticTable;
 
 import java.util.*;
 
@@ -37,11 +40,21 @@ import java.util.*;
  * grid.advanceCurrentTime();
  *
  */
-public class GameOfLifeRule extends CellularAutomatonRule {
+public class GameOfLifeRule extends CellularAutomatonRule implements RegionKernel {
 
 
-  private Set<Integer> bornNums;
-  private Set<Integer> surviveNums;
+  // largest neighborhood a table is compiled for up front; larger
+  // ones get a larger table on first use
+  private static final int DEFAULT_MAX_NEIGHBORS = 8;
+
+  private static final GameOfLifeState.States STATES[] = GameOfLifeState.States.values();
+  private static final int DEAD = GameOfLifeState.States.DEAD.ordinal();
+  private static final int ALIVE = GameOfLifeState.States.ALIVE.ordinal();
+
+  // birthCounts[n] / survivalCounts[n]: whether n live neighbors lead
+  // to birth / survival; indexed by digits of the rule string
+  private boolean birthCounts[], survivalCounts[];
+  private volatile TotalisticTable table;
 
   /**
    * Construct a rule with the given parameter map.
@@ -57,32 +70,73 @@ public class GameOfLifeRule extends CellularAutomatonRule {
   /**
    * This method is called every step, and updates the cell's state under certain conditions
    *
-   * @param cell this is the cell which's state will be updated
-   * @param neighbors this is all 8 neighbors of cell
+   * @param neighborhood the cell which's state will be updated, and its neighbors
    */
   @Override
-  public void advanceCellState(Cell cell, List<Cell> neighbors) {
-    int aliveNeighbors = 0;
-    for(Cell neighbor : neighbors){
-      if(neighbor.getState(Cell.CURRENT_TIME).getState() == GameOfLifeState.States.ALIVE){
-        aliveNeighbors++;
-      }
-    }
+  public void advanceCellState(Neighborhood neighborhood) {
+    int size = neighborhood.size();
+    TotalisticTable t = tableFor(size);
 
-    //System.out.printf("Alive count: %d ", aliveNeighbors);
+    int packed = 0;
+    for(int k = 0; k < size; k++)
+      packed += t.getWeight(neighborhood.getOrdinal(k));
 
-    if(cell.getState(Cell.CURRENT_TIME).getState()  == GameOfLifeState.States.ALIVE){
-      if(!surviveNums.contains(aliveNeighbors)){
-        cell.setState(Cell.NEXT_TIME, new GameOfLifeState(GameOfLifeState.States.DEAD));
-        //System.out.printf("-> die");
-      }
-    } else {
-      if(bornNums.contains(aliveNeighbors)){
-        cell.setState(Cell.NEXT_TIME, new GameOfLifeState(GameOfLifeState.States.ALIVE));
-        //Systemout.printf("-> born");
-      }
+    int state = neighborhood.getCenterOrdinal();
+    int next = t.next(state, packed);
+    if(next != state)
+      neighborhood.setNextState(GameOfLifeState.of(STATES[next]));
+  }
+
+  @Override
+  public void advanceRegion(Region region) {
+    tableFor(region.getMaxNeighbors()).advanceRegion(region);
+  }
+
+  @Override
+  public TotalisticTable getTotalisticTable(int maxNeighbors) {
+    return tableFor(maxNeighbors);
+  }
+
+  // table accepting at least `neighbors' neighbors
+  private TotalisticTable tableFor(int neighbors) {
+    TotalisticTable t = table;
+    if(neighbors > t.getMaxNeighbors()) {
+      t = t.withMaxNeighbors(neighbors);
+      table = t;
     }
-    //System.out.println("");
+    return t;
+  }
+
+  @Override
+  public boolean isLocal() {
+    return true;
+  }
+
+  @Override
+  public boolean supportsActiveRegion() {
+    return true;
+  }
+
+  /**
+   * Check whether a dead cell with `aliveNeighbors' live neighbors is
+   * born under the current rule set.
+   *
+   * @param aliveNeighbors Number of live neighbors.
+   * @return True if such a cell becomes alive.
+   */
+  public boolean isBirthCount(int aliveNeighbors) {
+    return aliveNeighbors >= 0 && aliveNeighbors < birthCounts.length && birthCounts[aliveNeighbors];
+  }
+
+  /**
+   * Check whether a live cell with `aliveNeighbors' live neighbors
+   * survives under the current rule set.
+   *
+   * @param aliveNeighbors Number of live neighbors.
+   * @return True if such a cell stays alive.
+   */
+  public boolean isSurvivalCount(int aliveNeighbors) {
+    return aliveNeighbors >= 0 && aliveNeighbors < survivalCounts.length && survivalCounts[aliveNeighbors];
   }
 
   /**
@@ -128,14 +182,23 @@ public class GameOfLifeRule extends CellularAutomatonRule {
       survive.addAll(paramSurvive);
     }
 
-    bornNums = new HashSet<>();
-    surviveNums = new HashSet<>();
+    // rule strings hold single digits
+    birthCounts = new boolean[10];
+    survivalCounts = new boolean[10];
 
     for(Integer i : born){
-      bornNums.add(i);
+      birthCounts[i] = true;
     }
     for(Integer i : survive){
-      surviveNums.add(i);
+      survivalCounts[i] = true;
     }
+
+    boolean counted[] = new boolean[STATES.length];
+    counted[ALIVE] = true;
+    table = new TotalisticTable(STATES.length, counted, DEFAULT_MAX_NEIGHBORS,
+        (state, counts) -> {
+          boolean next = state == ALIVE ? isSurvivalCount(counts[ALIVE]) : isBirthCount(counts[ALIVE]);
+          return next ? ALIVE : DEAD;
+        });
   }
 }
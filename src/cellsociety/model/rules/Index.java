@@ -17,6 +17,7 @@ public class Index {
           "fire", FireRule.class,
           "percolation", PercolationRule.class,
           "rps", RockPaperScissorRule.class,
-          "elementary", ElementaryRule.class
+          "elementary", ElementaryRule.class,
+          "totalistic", TotalisticRule.class
              );
 }
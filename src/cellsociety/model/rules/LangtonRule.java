@@ -1,8 +1,7 @@
 package cellsociety.model.rules;
 
-import cellsociety.model.Cell;
 import cellsociety.model.CellularAutomatonRule;
-import java.util.List;
+import cellsociety.model.Neighborhood;
 import java.util.Map;
 
 
@@ -21,7 +20,7 @@ public class LangtonRule extends CellularAutomatonRule {
   }
 
   @Override
-  public void advanceCellState(Cell cell, List<Cell> neighbors) {
+  public void advanceCellState(Neighborhood neighborhood) {
 
   }
 
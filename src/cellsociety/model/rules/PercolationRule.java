@@ -1,9 +1,12 @@
 package cellsociety.model.rules;
 
-import cellsociety.model.Cell;
 import cellsociety.model.CellularAutomatonRule;
+import cellsociety.model.Neighborhood;
+import cellsociety.model.Region;
+import cellsociety.model.RegionKernel;
 
 import cellsociety.model.states.PercolationState;
+import cellsociety.model.util.TotalisticTable;
 import java.util.*;
 
 /**
@@ -11,7 +14,17 @@ import java.util.*;
  *
  * @author Franklin Wei
  */
-public class PercolationRule extends CellularAutomatonRule {
+public class PercolationRule extends CellularAutomatonRule implements RegionKernel {
+  // largest neighborhood a table is compiled for up front; larger
+  // ones get a larger table on first use
+  private static final int DEFAULT_MAX_NEIGHBORS = 8;
+
+  private static final PercolationState.States STATES[] = PercolationState.States.values();
+  private static final int OPEN = PercolationState.States.OPEN.ordinal();
+  private static final int PERCOLATED = PercolationState.States.PERCOLATED.ordinal();
+
+  private volatile TotalisticTable table;
+
   /**
    * Construct a Percolation rule. `params' is ignored.
    *
@@ -19,18 +32,56 @@ public class PercolationRule extends CellularAutomatonRule {
    */
   public PercolationRule(Map<String, String> params) {
     super(params);
+
+    boolean counted[] = new boolean[STATES.length];
+    counted[PERCOLATED] = true;
+    table = new TotalisticTable(STATES.length, counted, DEFAULT_MAX_NEIGHBORS,
+        (state, counts) -> state == OPEN && counts[PERCOLATED] > 0 ? PERCOLATED : state);
+  }
+
+  @Override
+  public void advanceCellState(Neighborhood neighborhood) {
+    int size = neighborhood.size();
+    TotalisticTable t = tableFor(size);
+
+    int packed = 0;
+    for(int k = 0; k < size; k++)
+      packed += t.getWeight(neighborhood.getOrdinal(k));
+
+    int state = neighborhood.getCenterOrdinal();
+    int next = t.next(state, packed);
+    if(next != state)
+      neighborhood.setNextState(PercolationState.of(STATES[next]));
+  }
+
+  @Override
+  public void advanceRegion(Region region) {
+    tableFor(region.getMaxNeighbors()).advanceRegion(region);
   }
 
   @Override
-  public void advanceCellState(Cell cell, List<Cell> neighbors) {
-    if(cell.getState(cell.CURRENT_TIME).getState() == PercolationState.States.OPEN){
-      for(Cell neighbor : neighbors){
-        if(neighbor.getState(cell.CURRENT_TIME).getState() == PercolationState.States.PERCOLATED){
-          cell.setState(cell.NEXT_TIME, new PercolationState(PercolationState.States.PERCOLATED));
-          break;
-        }
-      }
+  public TotalisticTable getTotalisticTable(int maxNeighbors) {
+    return tableFor(maxNeighbors);
+  }
+
+  // table accepting at least `neighbors' neighbors
+  private TotalisticTable tableFor(int neighbors) {
+    TotalisticTable t = table;
+    if(neighbors > t.getMaxNeighbors()) {
+      t = t.withMaxNeighbors(neighbors);
+      table = t;
     }
+    return t;
+  }
+
+  @Override
+  public boolean isLocal() {
+    return true;
+  }
+
+  @Override
+  public boolean supportsActiveRegion() {
+    return true;
   }
 
   @Override
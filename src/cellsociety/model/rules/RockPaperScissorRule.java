@@ -1,11 +1,13 @@
 package cellsociety.model.rules;
 
-import cellsociety.model.Cell;
 import cellsociety.model.CellularAutomatonRule;
+import cellsociety.model.Neighborhood;
+import cellsociety.model.Region;
+import cellsociety.model.RegionKernel;
 import cellsociety.model.states.RockPaperScissorState;
 import cellsociety.model.states.RockPaperScissorState.States;
+import cellsociety.model.util.TotalisticTable;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -40,7 +42,7 @@ import java.util.Map;
  * grid.advanceCurrentTime();
  *
  */
-public class RockPaperScissorRule extends CellularAutomatonRule {
+public class RockPaperScissorRule extends CellularAutomatonRule implements RegionKernel {
 
   private static final Map<States, List<States>> LOSSES_TO =
       Map.of(
@@ -49,7 +51,14 @@ public class RockPaperScissorRule extends CellularAutomatonRule {
           States.SCISSOR, Arrays.asList(States.ROCK),
           States.EMPTY, Arrays.asList(States.ROCK, States.SCISSOR, States.PAPER)
       );
+  // largest neighborhood a table is compiled for up front; larger
+  // ones get a larger table on first use
+  private static final int DEFAULT_MAX_NEIGHBORS = 8;
+
+  private static final States STATES[] = States.values();
+
   private int threshold;
+  private volatile TotalisticTable table;
 
   /**
    * Construct a rule.
@@ -62,29 +71,67 @@ public class RockPaperScissorRule extends CellularAutomatonRule {
   }
 
   @Override
-  public void advanceCellState(Cell cell, List<Cell> neighbors) {
+  public void advanceCellState(Neighborhood neighborhood) {
+    int size = neighborhood.size();
+    TotalisticTable t = tableFor(size);
+
+    int packed = 0;
+    for(int state = 0; state < STATES.length; state++)
+      packed += t.pack(state, neighborhood.count(state));
+
+    int current = neighborhood.getCenterOrdinal();
+    int next = t.next(current, packed);
+    if(next != current)
+      neighborhood.setNextState(RockPaperScissorState.of(STATES[next]));
+  }
+
+  @Override
+  public boolean countsNeighbors() {
+    return true;
+  }
+
+  @Override
+  public void advanceRegion(Region region) {
+    tableFor(region.getMaxNeighbors()).advanceRegion(region);
+  }
+
+  @Override
+  public TotalisticTable getTotalisticTable(int maxNeighbors) {
+    return tableFor(maxNeighbors);
+  }
+
+  // table accepting at least `neighbors' neighbors
+  private TotalisticTable tableFor(int neighbors) {
+    TotalisticTable t = table;
+    if(neighbors > t.getMaxNeighbors()) {
+      t = t.withMaxNeighbors(neighbors);
+      table = t;
+    }
+    return t;
+  }
+
+  // the state a cell in `state' switches to, given its neighbor counts
+  private int nextState(int state, int counts[]) {
     int maxNeighborLosses = 0;
     States maxNeighborLossState = States.EMPTY;
-    for(States state : LOSSES_TO.get(cell.getState(Cell.CURRENT_TIME).getState())){
-      int numberOfLosses = getNeighborsOfState(state, neighbors);
+    for(States winner : LOSSES_TO.get(STATES[state])){
+      int numberOfLosses = counts[winner.ordinal()];
       if( numberOfLosses >= threshold && numberOfLosses > maxNeighborLosses){
         maxNeighborLosses = numberOfLosses;
-        maxNeighborLossState = state;
+        maxNeighborLossState = winner;
       }
     }
-    if(maxNeighborLossState != States.EMPTY){
-      cell.setState(Cell.NEXT_TIME, new RockPaperScissorState(maxNeighborLossState));
-    }
+    return maxNeighborLossState != States.EMPTY ? maxNeighborLossState.ordinal() : state;
   }
 
-  private int getNeighborsOfState(States state, List<Cell> neighbors){
-    int ret = 0;
-    for (Cell neighbor : neighbors){
-      if (neighbor.getState(Cell.CURRENT_TIME).getState() == state){
-        ret ++;
-      }
-    }
-    return ret;
+  @Override
+  public boolean isLocal() {
+    return true;
+  }
+
+  @Override
+  public boolean supportsActiveRegion() {
+    return true;
   }
 
   /**
@@ -109,5 +156,12 @@ public class RockPaperScissorRule extends CellularAutomatonRule {
         threshold = paramThreshold;
       }
     }
+
+    // only the states a cell can lose to are counted
+    boolean counted[] = new boolean[STATES.length];
+    counted[States.ROCK.ordinal()] = true;
+    counted[States.PAPER.ordinal()] = true;
+    counted[States.SCISSOR.ordinal()] = true;
+    table = new TotalisticTable(STATES.length, counted, DEFAULT_MAX_NEIGHBORS, this::nextState);
   }
 }
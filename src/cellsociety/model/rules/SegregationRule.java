@@ -3,12 +3,13 @@ package cellsociety.model.rules;
 import cellsociety.model.Cell;
 import cellsociety.model.CellGrid;
 import cellsociety.model.CellularAutomatonRule;
+import cellsociety.model.Neighborhood;
 import cellsociety.model.states.SegregationState;
 import cellsociety.model.states.SegregationState.States;
+import cellsociety.model.util.CounterRandom;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.Random;
 
 /**
  *
@@ -40,11 +41,22 @@ import java.util.Random;
  *
  * grid.advanceCurrentTime();
  *
+ * A moving cell may land in any open cell of the grid, so the rule
+ * claims (see Neighborhood.claim()) its destinations anywhere, and is
+ * therefore stepped one cell at a time. The open cells are listed once
+ * per generation; each is tried at most once.
+ *
  */
 public class SegregationRule extends CellularAutomatonRule {
 
   private double neighborsNeeded;
 
+  // cells of `openCellsGrid' which were open at `openCellsTime' and
+  // have not been tried as a destination since
+  private CellGrid openCellsGrid;
+  private int openCellsTime;
+  private List<Cell> openCells;
+
 
   /**
    * Construct a SegregationRule with the given parameter map.
@@ -57,70 +69,67 @@ public class SegregationRule extends CellularAutomatonRule {
   }
 
   @Override
-  public void advanceCellState(Cell cell, List<Cell> neighbors) {
-    ArrayList<Cell> populatedNeighbors = getPopulatedNeighbors(neighbors);
-    ArrayList<Cell> similarNeighbors = getSimilarNeighbors(neighbors,
-        (States) cell.getState(Cell.CURRENT_TIME).getState());
-
-    if (cell.getState(Cell.CURRENT_TIME).getState() != States.OPEN &&
-        needsToMove(populatedNeighbors, similarNeighbors))
-      move(cell);
-  }
+  public void advanceCellState(Neighborhood neighborhood) {
+    States state = (States) neighborhood.getCenterState(Cell.CURRENT_TIME).getState();
+    if(state == States.OPEN)
+      return;
 
-  private ArrayList<Cell> getSimilarNeighbors(List<Cell> neighbors, SegregationState.States state){
-    ArrayList<Cell> similarNeighbors = new ArrayList<>();
-    for(Cell neighbor : neighbors){
-      if(neighbor.getState(Cell.CURRENT_TIME).getState() == state){
-        similarNeighbors.add(neighbor);
-      }
-    }
-    return similarNeighbors;
+    int populatedNeighbors = neighborhood.count(States.X.ordinal()) + neighborhood.count(States.O.ordinal());
+    int similarNeighbors = neighborhood.count(state.ordinal());
+
+    if (needsToMove(populatedNeighbors, similarNeighbors) && neighborhood.claimCenter())
+      move(neighborhood);
   }
 
+  @Override
+  public boolean countsNeighbors() {
+    return true;
+  }
 
-  private ArrayList<Cell> getPopulatedNeighbors(List<Cell> neighbors){
-    ArrayList<Cell> populatedNeighbors = new ArrayList<>();
-    for(Cell neighbor : neighbors){
-      if(neighbor.getState(Cell.CURRENT_TIME).getState() == States.X || neighbor.getState(Cell.CURRENT_TIME).getState() == States.O){
-        populatedNeighbors.add(neighbor);
+  private void move(Neighborhood neighborhood){
+    Cell currentCell = neighborhood.getCenter();
+    List<Cell> candidates = getOpenCells(currentCell.getParentGrid());
+
+    CounterRandom rand = neighborhood.getRandom();
+    while(!candidates.isEmpty()){
+      // take a random candidate out of the list, whether or not its
+      // claim succeeds
+      int pick = rand.nextInt(candidates.size());
+      Cell swapCell = candidates.get(pick);
+      candidates.set(pick, candidates.get(candidates.size() - 1));
+      candidates.remove(candidates.size() - 1);
+
+      if(neighborhood.claim(swapCell)){
+        swap(currentCell, swapCell);
+        return;
       }
     }
-    return populatedNeighbors;
   }
 
-
-  private void move(Cell currentCell){
-    CellGrid cellGrid = currentCell.getParentGrid();
-    ArrayList<Cell> openCells = new ArrayList<>();
-
-    for(Cell cell : cellGrid) {
-      if(cell.getState(Cell.CURRENT_TIME).getState() == States.OPEN &&
-         cell.getState(Cell.NEXT_TIME).getState() == States.OPEN)
+  // list the cells open at the grid's current time, once per generation
+  private List<Cell> getOpenCells(CellGrid cellGrid){
+    if(openCells == null || openCellsGrid != cellGrid || openCellsTime != cellGrid.getCurrentTime()){
+      openCells = new ArrayList<>();
+      for(Cell cell : cellGrid) {
+        if(cell.getState(Cell.CURRENT_TIME).getState() == States.OPEN)
           openCells.add(cell);
+      }
+      openCellsGrid = cellGrid;
+      openCellsTime = cellGrid.getCurrentTime();
     }
-
-    System.out.printf("----%d open cells\n", openCells.size());
-
-    if(openCells.size() == 0){
-      return;
-    }
-
-    Random rand = new Random();
-    Cell swapCell = openCells.get(rand.nextInt(openCells.size()));
-
-    swap(currentCell, swapCell);
+    return openCells;
   }
 
   private void swap(Cell a, Cell b){
-    b.setState(Cell.NEXT_TIME, new SegregationState(((SegregationState) a.getState(Cell.CURRENT_TIME)).getState()));
-    a.setState(Cell.NEXT_TIME, new SegregationState());
+    b.setState(Cell.NEXT_TIME, SegregationState.of(((SegregationState) a.getState(Cell.CURRENT_TIME)).getState()));
+    a.setState(Cell.NEXT_TIME, SegregationState.of(SegregationState.States.OPEN));
   }
 
-  private boolean needsToMove(List<Cell> populatedNeighbors, List<Cell> similarNeighbors){
-    if(similarNeighbors.size() == 0){
-      return (populatedNeighbors.size() != 0);
+  private boolean needsToMove(int populatedNeighbors, int similarNeighbors){
+    if(similarNeighbors == 0){
+      return (populatedNeighbors != 0);
     }
-    return ((double) populatedNeighbors.size()/(double) similarNeighbors.size() >= neighborsNeeded);
+    return ((double) populatedNeighbors/(double) similarNeighbors >= neighborsNeeded);
   }
 
   /**
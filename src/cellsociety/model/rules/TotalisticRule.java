@@ -0,0 +1,247 @@
+package cellsociety.model.rules;
+
+import cellsociety.model.CellularAutomatonRule;
+import cellsociety.model.Neighborhood;
+import cellsociety.model.Region;
+import cellsociety.model.RegionKernel;
+import cellsociety.model.states.TotalisticState;
+import cellsociety.model.util.TotalisticTable;
+import java.util.*;
+
+/**
+ * An outer-totalistic rule given declaratively, as a parameter of the
+ * configuration file, and compiled into a TotalisticTable. Life-like
+ * and multi-state rules can thus be added without code, and run on
+ * the same engines and region kernels as the hand-written ones.
+ *
+ * The "transitions" parameter holds a list of clauses separated by
+ * semicolons, each of the form
+ *
+ * FROM/COUNTED=N,N-N,.../...->TO
+ *
+ * where FROM is a state name or "*" (any state), each condition
+ * requires the number of neighbors in state COUNTED to be one of the
+ * listed numbers or ranges, and TO is the next state. The first clause
+ * whose state and conditions match applies; a cell which matches none
+ * keeps its state. For example, Conway's Game of Life (the default) is
+ *
+ * S0/S1=3->S1; S1/S1=2,3->S1; S1->S0
+ *
+ * and Brian's Brain is
+ *
+ * S0/S1=2->S1; S1->S2; S2->S0
+ *
+ * Only states which some condition counts are packed into the table,
+ * which has STATES x (neighbors + 1)^(counted states) entries and may
+ * hold at most MAX_TABLE_SIZE of them (so at most five states can be
+ * counted on a grid with eight neighbors).
+ *
+ * @author Franklin Wei
+ */
+public class TotalisticRule extends CellularAutomatonRule implements RegionKernel {
+  /**
+   * Transitions used when none (or invalid ones) are given.
+   */
+  public static final String DEFAULT_TRANSITIONS = "S0/S1=3->S1; S1/S1=2,3->S1; S1->S0";
+
+  /**
+   * Largest number of entries of a compiled table, for the default
+   * neighborhood size.
+   */
+  public static final int MAX_TABLE_SIZE = 1 << 22;
+
+  // largest neighborhood a table is compiled for up front; larger
+  // ones get a larger table on first use
+  private static final int DEFAULT_MAX_NEIGHBORS = 8;
+
+  private static final TotalisticState.States STATES[] = TotalisticState.States.values();
+
+  // a parsed clause: applies to cells in state `from' (or any, if
+  // negative) whose count of neighbors in state counted[i] is in
+  // allowed[i] for each i
+  private static class Clause {
+    final int from, to;
+    final int counted[];
+    final BitSet allowed[];
+
+    Clause(int from, int to, int counted[], BitSet allowed[]) {
+      this.from = from;
+      this.to = to;
+      this.counted = counted;
+      this.allowed = allowed;
+    }
+
+    boolean matches(int state, int counts[]) {
+      if(from >= 0 && from != state)
+        return false;
+      for(int i = 0; i < counted.length; i++)
+        if(!allowed[i].get(counts[counted[i]]))
+          return false;
+      return true;
+    }
+  }
+
+  private volatile TotalisticTable table;
+
+  /**
+   * Construct a rule with the given parameter map.
+   *
+   * @param params Parameter map, with key "transitions".
+   */
+  public TotalisticRule(Map<String, String> params) {
+    super(params);
+
+    setGameSpecifics(params);
+  }
+
+  @Override
+  public void advanceCellState(Neighborhood neighborhood) {
+    int size = neighborhood.size();
+    TotalisticTable t = tableFor(size);
+
+    int packed = 0;
+    for(int k = 0; k < size; k++)
+      packed += t.getWeight(neighborhood.getOrdinal(k));
+
+    int state = neighborhood.getCenterOrdinal();
+    int next = t.next(state, packed);
+    if(next != state)
+      neighborhood.setNextState(TotalisticState.of(STATES[next]));
+  }
+
+  @Override
+  public void advanceRegion(Region region) {
+    tableFor(region.getMaxNeighbors()).advanceRegion(region);
+  }
+
+  @Override
+  public TotalisticTable getTotalisticTable(int maxNeighbors) {
+    return tableFor(maxNeighbors);
+  }
+
+  // table accepting at least `neighbors' neighbors
+  private TotalisticTable tableFor(int neighbors) {
+    TotalisticTable t = table;
+    if(neighbors > t.getMaxNeighbors()) {
+      t = t.withMaxNeighbors(neighbors);
+      table = t;
+    }
+    return t;
+  }
+
+  @Override
+  public boolean isLocal() {
+    return true;
+  }
+
+  @Override
+  public boolean supportsActiveRegion() {
+    return true;
+  }
+
+  /**
+   * Compile the transitions in "transitions". If they are missing or
+   * invalid, the rule is left as it was (or, when constructing it,
+   * becomes DEFAULT_TRANSITIONS).
+   *
+   * @param params Parameter map, with key "transitions".
+   */
+  @Override
+  public void setGameSpecifics(Map<String, String> params) {
+    if(params.containsKey("transitions")) {
+      try {
+        table = compile(params.get("transitions"));
+        return;
+      } catch(IllegalArgumentException e) {
+        // keep what we have
+      }
+    }
+
+    if(table == null)
+      table = compile(DEFAULT_TRANSITIONS);
+  }
+
+  /**
+   * Compile a list of transitions (see the class description).
+   *
+   * @param transitions Transitions.
+   * @return Compiled table.
+   * @throws IllegalArgumentException if the transitions are invalid,
+   * or would need too large a table.
+   */
+  public static TotalisticTable compile(String transitions) {
+    List<Clause> clauses = new ArrayList<>();
+    for(String clause : transitions.split(";")) {
+      if(!clause.isBlank())
+        clauses.add(parseClause(clause.replaceAll("\\s", "")));
+    }
+
+    boolean counted[] = new boolean[STATES.length];
+    long size = STATES.length;
+    for(Clause clause : clauses) {
+      for(int state : clause.counted) {
+        if(!counted[state])
+          size *= DEFAULT_MAX_NEIGHBORS + 1;
+        counted[state] = true;
+      }
+    }
+    if(size > MAX_TABLE_SIZE)
+      throw new IllegalArgumentException("too many counted states");
+
+    return new TotalisticTable(STATES.length, counted, DEFAULT_MAX_NEIGHBORS, (state, counts) -> {
+      for(Clause clause : clauses)
+        if(clause.matches(state, counts))
+          return clause.to;
+      return state;
+    });
+  }
+
+  // FROM/COUNTED=N,N-N/...->TO
+  private static Clause parseClause(String clause) {
+    String sides[] = clause.split("->");
+    if(sides.length != 2)
+      throw new IllegalArgumentException("transition needs one '->': " + clause);
+
+    String terms[] = sides[0].split("/");
+    int from = terms[0].equals("*") ? -1 : parseState(terms[0]);
+    int to = parseState(sides[1]);
+
+    int counted[] = new int[terms.length - 1];
+    BitSet allowed[] = new BitSet[terms.length - 1];
+    for(int i = 1; i < terms.length; i++) {
+      String condition[] = terms[i].split("=");
+      if(condition.length != 2)
+        throw new IllegalArgumentException("condition needs one '=': " + terms[i]);
+      counted[i - 1] = parseState(condition[0]);
+      allowed[i - 1] = parseCounts(condition[1]);
+    }
+
+    return new Clause(from, to, counted, allowed);
+  }
+
+  private static int parseState(String name) {
+    try {
+      return TotalisticState.States.valueOf(name.toUpperCase()).ordinal();
+    } catch(IllegalArgumentException e) {
+      throw new IllegalArgumentException("unknown state: " + name);
+    }
+  }
+
+  // N,N-N,...
+  private static BitSet parseCounts(String counts) {
+    BitSet allowed = new BitSet();
+    for(String term : counts.split(",")) {
+      String bounds[] = term.split("-", -1);
+      try {
+        int low = Integer.parseInt(bounds[0]);
+        int high = bounds.length > 1 ? Integer.parseInt(bounds[1]) : low;
+        if(bounds.length > 2 || low < 0 || high < low)
+          throw new IllegalArgumentException("invalid count: " + term);
+        allowed.set(low, high + 1);
+      } catch(NumberFormatException e) {
+        throw new IllegalArgumentException("invalid count: " + term);
+      }
+    }
+    return allowed;
+  }
+}
@@ -3,12 +3,11 @@ package cellsociety.model.rules;
 import cellsociety.model.Cell;
 import cellsociety.model.CellState;
 import cellsociety.model.CellularAutomatonRule;
+import cellsociety.model.Neighborhood;
 import cellsociety.model.states.WaTorWorldState;
 import cellsociety.model.states.WaTorWorldState.*;
-import java.util.List;
+import cellsociety.model.util.CounterRandom;
 import java.util.Map;
-import java.util.Random;
-import java.util.stream.Collectors;
 
 /**
  *
@@ -41,6 +40,11 @@ import java.util.stream.Collectors;
  *
  * grid.advanceCurrentTime();
  *
+ * Every cell written is claimed first (see Neighborhood.claim()): a
+ * fish or shark claims its own cell, then the empty cell it moves or
+ * spawns into, or the fish it eats. A fish whose cell was claimed by a
+ * shark has been eaten, and does nothing.
+ *
  */
 public class WaTorWorldRule extends CellularAutomatonRule {
   private int sharkRoundsToBreed;
@@ -58,27 +62,27 @@ public class WaTorWorldRule extends CellularAutomatonRule {
   }
 
   @Override
-  public void advanceCellState(Cell cell, List<Cell> neighbors) {
+  public void advanceCellState(Neighborhood neighborhood) {
+    if(neighborhood.getCenterState(Cell.CURRENT_TIME).getState() == States.EMPTY ||
+       !neighborhood.claimCenter())
+      return;
 
     boolean moved = false, died = false;
 
-    switch((States)cell.getState(Cell.CURRENT_TIME).getState()) {
+    switch((States)neighborhood.getCenterState(Cell.CURRENT_TIME).getState()) {
       case FISH:
-        moved = tryMoving(cell, neighbors);
+        moved = tryMoving(neighborhood);
         break;
 
       case SHARK:
-        if(eatFish(neighbors)){
-          foundFood(cell);
+        if(eatFish(neighborhood)){
+          foundFood(neighborhood);
         } else {
-          died = starve(cell);
+          died = starve(neighborhood);
           if(!died)
-            moved = tryMoving(cell, neighbors);
+            moved = tryMoving(neighborhood);
         }
         break;
-
-      case EMPTY:
-        return; // do nothing
     }
 
     // If we didn't move, update the survived turns count in our next
@@ -87,110 +91,127 @@ public class WaTorWorldRule extends CellularAutomatonRule {
     {
       System.out.println("no move");
       if(!died)
-        updateTurnsSurvived(cell);
+        updateTurnsSurvived(neighborhood);
     } else {
       System.out.println("moved");
 
     }
 
     if(!died)
-      breed(cell.getState(Cell.CURRENT_TIME), neighbors);
+      breed(neighborhood.getCenterState(Cell.CURRENT_TIME), neighborhood);
   }
 
 
-  private boolean starve(Cell cell){
-    WaTorWorldState state = (WaTorWorldState) cell.getState(Cell.CURRENT_TIME);
+  private boolean starve(Neighborhood neighborhood){
+    WaTorWorldState state = (WaTorWorldState) neighborhood.getCenterState(Cell.CURRENT_TIME);
     System.out.printf("----%d turns without eating\n", state.getTurnsWithoutEating());
     if(state.getTurnsWithoutEating() >= sharkRoundsToStarve){
       System.out.println("starving");
-      cell.setState(Cell.NEXT_TIME, new WaTorWorldState(States.EMPTY));
+      neighborhood.setNextState(new WaTorWorldState(States.EMPTY));
       return true;
     }
     return false;
   }
 
-  private void updateTurnsSurvived(Cell cell){
-    WaTorWorldState currentState = (WaTorWorldState) cell.getState(Cell.CURRENT_TIME);
+  private void updateTurnsSurvived(Neighborhood neighborhood){
+    WaTorWorldState currentState = (WaTorWorldState) neighborhood.getCenterState(Cell.CURRENT_TIME);
     int newTurnsSurvived = currentState.getTurnsSurvived() + 1;
     int newTurnsWithoutEating = currentState.getTurnsWithoutEating() + 1;
-    cell.setState(Cell.NEXT_TIME, new WaTorWorldState(currentState.getState(), newTurnsSurvived, newTurnsWithoutEating));
+    neighborhood.setNextState(new WaTorWorldState(currentState.getState(), newTurnsSurvived, newTurnsWithoutEating));
   }
 
-  private void breed(CellState cellState, List<Cell> neighbors){
+  private void breed(CellState cellState, Neighborhood neighborhood){
     WaTorWorldState state = (WaTorWorldState) cellState;
-    List<Cell> possibleSpawn = filterNeighborsByState(neighbors, States.EMPTY);
-
-    if(!possibleSpawn.isEmpty()){
-      Random rand = new Random();
-      Cell spawn = possibleSpawn.get(rand.nextInt(possibleSpawn.size()));
+    States spawnState;
+    if(state.getState() == States.FISH && state.getTurnsSurvived() == fishRoundsToBreed)
+      spawnState = States.FISH;
+    else if(state.getState() == States.SHARK && state.getTurnsSurvived() == sharkRoundsToBreed)
+      spawnState = States.SHARK;
+    else
+      return;
+
+    int spawn = claimNeighborByState(neighborhood, States.EMPTY);
+    if(spawn >= 0)
+      neighborhood.setState(spawn, Cell.NEXT_TIME, new WaTorWorldState(spawnState));
+  }
 
-      if(state.getState() == States.FISH){
-        //System.out.printf("A----turns survived = %d\n", state.getTurnsSurvived());
-        //System.out.printf("B----MadeFish\n", possibleSpawn.size());
-        if(state.getTurnsSurvived() == fishRoundsToBreed){
-          spawn.setState(Cell.NEXT_TIME, new WaTorWorldState(States.FISH));
+  /**
+   * Claim a random neighbor currently in `state' which nobody has
+   * claimed yet, trying the others when a claim fails, or return -1
+   * if there is none left.
+   */
+  private int claimNeighborByState(Neighborhood neighborhood, States state){
+    CounterRandom rand = neighborhood.getRandom();
+    while(true) {
+      int matching = 0;
+      for(int k = 0; k < neighborhood.size(); k++)
+        if(isAvailable(neighborhood, k, state))
+          matching++;
+
+      if(matching == 0)
+        return -1;
+
+      int pick = rand.nextInt(matching);
+      for(int k = 0; ; k++) {
+        if(isAvailable(neighborhood, k, state) && pick-- == 0) {
+          if(neighborhood.claim(k))
+            return k;
+          // taken since we looked; it is claimed now, so the next
+          // pass leaves it out
+          break;
         }
-      } else if(state.getState() == States.SHARK &&
-                state.getTurnsSurvived() == sharkRoundsToBreed) {
-        spawn.setState(Cell.NEXT_TIME, new WaTorWorldState(States.SHARK));
       }
     }
   }
-  /**
-   * Filter a list of Cells for those matching `state' at both the
-   * current and next time steps.
-   */
-  private List<Cell> filterNeighborsByState(List<Cell> neighbors, States state){
-    return neighbors.stream()
-        .filter(cell -> cell.getState(Cell.CURRENT_TIME).getState() == state)
-        .filter(cell -> cell.getState(Cell.NEXT_TIME).getState() == state)
-        .collect(Collectors.toList());
+
+  private boolean isAvailable(Neighborhood neighborhood, int k, States state){
+    return neighborhood.getState(k, Cell.CURRENT_TIME).getState() == state && !neighborhood.isClaimed(k);
   }
 
-  private boolean eatFish(List<Cell> neighbors){
+  private boolean eatFish(Neighborhood neighborhood){
     // Find cells which currently have fish, and have not been claimed
-    // by another shark for eating (i.e. are still present at the next
-    // time step).
-    List<Cell> possibleFood = filterNeighborsByState(neighbors, States.FISH);
-
-    if(!possibleFood.isEmpty()){
-      Random rand = new Random();
-      Cell food = possibleFood.get(rand.nextInt(possibleFood.size()));
-      food.setState(Cell.NEXT_TIME, new WaTorWorldState(States.EMPTY));
+    // by another shark for eating, or by the fish itself.
+    int food = claimNeighborByState(neighborhood, States.FISH);
+
+    if(food >= 0){
+      neighborhood.setState(food, Cell.NEXT_TIME, new WaTorWorldState(States.EMPTY));
       System.out.println("Eat fish");
       return true;
     }
     return false;
   }
 
-  private void foundFood(Cell cell){
-    WaTorWorldState state = (WaTorWorldState) cell.getState(Cell.CURRENT_TIME);
+  private void foundFood(Neighborhood neighborhood){
+    WaTorWorldState state = (WaTorWorldState) neighborhood.getCenterState(Cell.CURRENT_TIME);
     int roundsLasted = state.getTurnsSurvived();
-    cell.setState(Cell.NEXT_TIME, new WaTorWorldState(States.SHARK, roundsLasted));
+    neighborhood.setNextState(new WaTorWorldState(States.SHARK, roundsLasted));
   }
 
 
-  private boolean tryMoving(Cell currentCell, List<Cell> neighbors) {
-    List<Cell> possibleSwaps = filterNeighborsByState(neighbors, States.EMPTY);
+  private boolean tryMoving(Neighborhood neighborhood) {
+    int swap = claimNeighborByState(neighborhood, States.EMPTY);
 
-    if(!possibleSwaps.isEmpty()){
-      Random rand = new Random();
-      Cell swapCell = possibleSwaps.get(rand.nextInt(possibleSwaps.size()));
-      swapStates(currentCell, swapCell);
+    if(swap >= 0){
+      swapStates(neighborhood, swap);
       return true;
     }
 
     return false;
   }
 
-  private void swapStates(Cell a, Cell b){
-    WaTorWorldState aAsWaTor = (WaTorWorldState) a.getState(Cell.CURRENT_TIME);
+  private void swapStates(Neighborhood neighborhood, int k){
+    WaTorWorldState aAsWaTor = (WaTorWorldState) neighborhood.getCenterState(Cell.CURRENT_TIME);
     WaTorWorldState.States aState = aAsWaTor.getState();
     int aTurnsSurvived = aAsWaTor.getTurnsSurvived() + 1;
     int aTurnsWithoutEating = aAsWaTor.getTurnsWithoutEating() + 1;
 
-    b.setState(Cell.NEXT_TIME, new WaTorWorldState(aState, aTurnsSurvived, aTurnsWithoutEating));
-    a.setState(Cell.NEXT_TIME, new WaTorWorldState());
+    neighborhood.setState(k, Cell.NEXT_TIME, new WaTorWorldState(aState, aTurnsSurvived, aTurnsWithoutEating));
+    neighborhood.setNextState(new WaTorWorldState());
+  }
+
+  @Override
+  public boolean claimsNeighbors() {
+    return true;
   }
 
   /**
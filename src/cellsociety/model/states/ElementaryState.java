@@ -48,4 +48,15 @@ public class ElementaryState extends CellState<ElementaryState.States> {
   public ElementaryState(String str) {
     super(States.class, str);
   }
+
+  /**
+   * Retrieve the canonical ElementaryState with a given value.
+   * Unlike a newly constructed state, it can be compared by identity.
+   *
+   * @param s State.
+   * @return Shared instance.
+   */
+  public static ElementaryState of(States s) {
+    return canonical(ElementaryState.class, s);
+  }
 }
@@ -65,4 +65,15 @@ public class FireState extends CellState<FireState.States> {
   public FireState(String str) {
     super(States.class, str);
   }
+
+  /**
+   * Retrieve the canonical FireState with a given value.
+   * Unlike a newly constructed state, it can be compared by identity.
+   *
+   * @param s State.
+   * @return Shared instance.
+   */
+  public static FireState of(States s) {
+    return canonical(FireState.class, s);
+  }
 }
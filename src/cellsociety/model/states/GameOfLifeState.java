@@ -61,4 +61,15 @@ public class GameOfLifeState extends CellState<GameOfLifeState.States> {
   public GameOfLifeState(String str) {
     super(States.class, str);
   }
+
+  /**
+   * Retrieve the canonical GameOfLifeState with a given value.
+   * Unlike a newly constructed state, it can be compared by identity.
+   *
+   * @param s State.
+   * @return Shared instance.
+   */
+  public static GameOfLifeState of(States s) {
+    return canonical(GameOfLifeState.class, s);
+  }
 }
@@ -17,6 +17,7 @@ public class Index {
           "fire", FireState.class,
           "percolation", PercolationState.class,
           "rps", RockPaperScissorState.class,
-          "elementary", ElementaryState.class
+          "elementary", ElementaryState.class,
+          "totalistic", TotalisticState.class
              );
 }
@@ -64,4 +64,15 @@ public class PercolationState extends CellState<PercolationState.States> {
   public PercolationState(String str) {
     super(States.class, str);
   }
+
+  /**
+   * Retrieve the canonical PercolationState with a given value.
+   * Unlike a newly constructed state, it can be compared by identity.
+   *
+   * @param s State.
+   * @return Shared instance.
+   */
+  public static PercolationState of(States s) {
+    return canonical(PercolationState.class, s);
+  }
 }
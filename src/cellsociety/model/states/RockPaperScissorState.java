@@ -70,4 +70,15 @@ public class RockPaperScissorState extends CellState<RockPaperScissorState.State
   public RockPaperScissorState(String str) {
     super(States.class, str);
   }
+
+  /**
+   * Retrieve the canonical RockPaperScissorState with a given value.
+   * Unlike a newly constructed state, it can be compared by identity.
+   *
+   * @param s State.
+   * @return Shared instance.
+   */
+  public static RockPaperScissorState of(States s) {
+    return canonical(RockPaperScissorState.class, s);
+  }
 }
@@ -66,4 +66,15 @@ public class SegregationState extends CellState<SegregationState.States> {
   public SegregationState(String str) {
     super(States.class, str);
   }
+
+  /**
+   * Retrieve the canonical SegregationState with a given value.
+   * Unlike a newly constructed state, it can be compared by identity.
+   *
+   * @param s State.
+   * @return Shared instance.
+   */
+  public static SegregationState of(States s) {
+    return canonical(SegregationState.class, s);
+  }
 }
@@ -0,0 +1,86 @@
+package cellsociety.model.states;
+
+import cellsociety.model.CellState;
+
+/**
+ * State of a cell under a TotalisticRule, whose transitions are given
+ * in the configuration file rather than in code. The states are
+ * simply numbered, S0 through S7; S0 is the default.
+ *
+ * @author Franklin Wei
+ */
+public class TotalisticState extends CellState<TotalisticState.States> {
+  /**
+   * Possible states. Rules need not use all of them.
+   */
+  public enum States {
+    /**
+     * State 0 (the default).
+     */
+    S0,
+    /**
+     * State 1.
+     */
+    S1,
+    /**
+     * State 2.
+     */
+    S2,
+    /**
+     * State 3.
+     */
+    S3,
+    /**
+     * State 4.
+     */
+    S4,
+    /**
+     * State 5.
+     */
+    S5,
+    /**
+     * State 6.
+     */
+    S6,
+    /**
+     * State 7.
+     */
+    S7
+  }
+
+  /**
+   * Construct a TotalisticState.
+   *
+   * @param s State.
+   */
+  public TotalisticState(States s) {
+    super(s);
+  }
+
+  /**
+   * Construct a TotalisticState in state S0.
+   */
+  public TotalisticState(){
+    this(States.S0);
+  }
+
+  /**
+   * Construct a TotalisticState.
+   *
+   * @param str State as a String.
+   */
+  public TotalisticState(String str) {
+    super(States.class, str);
+  }
+
+  /**
+   * Retrieve the canonical TotalisticState with a given value.
+   * Unlike a newly constructed state, it can be compared by identity.
+   *
+   * @param s State.
+   * @return Shared instance.
+   */
+  public static TotalisticState of(States s) {
+    return canonical(TotalisticState.class, s);
+  }
+}
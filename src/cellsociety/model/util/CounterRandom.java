@@ -0,0 +1,122 @@
+package cellsociety.model.util;
+
+/**
+ * A counter-based source of random numbers for stochastic rules: every
+ * number is a pure function of a simulation seed, a generation, a cell
+ * index and a draw number (how many numbers were drawn for that cell
+ * in that generation before it), computed by scrambling the four with
+ * the SplitMix64 finalizer. Unlike a sequential generator such as
+ * java.util.Random, the numbers a cell draws do not depend on which
+ * cells were stepped before it or on which thread, so a simulation
+ * stepped in any order, on any number of threads, gives the same
+ * result for the same seed.
+ *
+ * A CounterRandom is positioned at a cell with moveTo(), and then
+ * yields that cell's draws in order. It holds no other state, so
+ * positioning it costs a few multiplications, but it must not be
+ * shared between threads.
+ *
+ * @author Franklin Wei
+ */
+public class CounterRandom {
+  // odd constant of the Weyl sequence SplitMix64 steps through
+  private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+  private final long seed;
+
+  // scrambled (seed, generation, index), and draws taken from it
+  private long key;
+  private long draws;
+
+  /**
+   * Create a source for a simulation, positioned at generation 0 of
+   * cell 0.
+   *
+   * @param seed Simulation seed.
+   */
+  public CounterRandom(long seed) {
+    this.seed = seed;
+    moveTo(0, 0);
+  }
+
+  /**
+   * Retrieve the simulation seed.
+   *
+   * @return Seed given at construction.
+   */
+  public long getSeed() {
+    return seed;
+  }
+
+  /**
+   * Position this source at the first draw of a cell in a generation.
+   *
+   * @param generation Generation (see CellGrid.getCurrentTime()).
+   * @param index Cell index (see CellGrid.indexOf()).
+   */
+  public void moveTo(int generation, long index) {
+    key = mix(mix(seed + GOLDEN_GAMMA * (generation + 1L)) + GOLDEN_GAMMA * (index + 1));
+    draws = 0;
+  }
+
+  /**
+   * Retrieve a number without reference to any position.
+   *
+   * @param seed Simulation seed.
+   * @param generation Generation.
+   * @param index Cell index.
+   * @param draw Draw number, from 0.
+   * @return The same number as the draw-th nextLong() after
+   * moveTo(generation, index) on a source with that seed.
+   */
+  public static long valueAt(long seed, int generation, long index, long draw) {
+    long key = mix(mix(seed + GOLDEN_GAMMA * (generation + 1L)) + GOLDEN_GAMMA * (index + 1));
+    return mix(key + GOLDEN_GAMMA * (draw + 1));
+  }
+
+  /**
+   * Draw 64 random bits.
+   *
+   * @return Next number of the current cell.
+   */
+  public long nextLong() {
+    return mix(key + GOLDEN_GAMMA * ++draws);
+  }
+
+  /**
+   * Draw an integer uniformly from [0, bound).
+   *
+   * @param bound Upper bound, exclusive; must be positive.
+   * @return Next number of the current cell, reduced to the range.
+   */
+  public int nextInt(int bound) {
+    if(bound <= 0)
+      throw new IllegalArgumentException("bound must be positive");
+
+    // multiply-shift of 32 random bits, redrawing the few values which
+    // would make some results more likely than others
+    long threshold = (1L << 32) % bound;
+    while(true) {
+      long product = (nextLong() >>> 32) * bound;
+      if((product & 0xffffffffL) >= threshold)
+        return (int) (product >>> 32);
+    }
+  }
+
+  /**
+   * Draw a number uniformly from [0, 1).
+   *
+   * @return Next number of the current cell, as a double.
+   */
+  public double nextDouble() {
+    return (nextLong() >>> 11) * 0x1.0p-53;
+  }
+
+  // the SplitMix64 output function: a bijection which scrambles every
+  // input bit into every output bit
+  private static long mix(long z) {
+    z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+    z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+    return z ^ (z >>> 31);
+  }
+}
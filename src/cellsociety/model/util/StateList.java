@@ -1,21 +1,22 @@
 package cellsociety.model.util;
 
-import java.util.Collections;
-import java.util.TreeMap;
-import java.util.Map;
-import java.util.Set;
-
 /**
  * A utility class to keep track of a series of "states" (which can be
  * any templated type), each of which is associated with an integer
  * "time". Times of states added to the list must be non-negative and
- * should form a continuous integer range starting from zero.
+ * increasing, but need not be consecutive: a state holds from its
+ * time until the time of the next state, so a list only needs to
+ * record the times at which its state changes. getState() at a time
+ * in between yields the last state recorded before it.
  *
  * However, a StateList does not necessarily need to hold all states
  * going back to T=0 -- a StateList holds up to `statesToKeep` states
  * at once, or an infinite amount of states, if `statesToKeep' is the
  * symbolic value INFINITE_STATES.
  *
+ * States are kept in a ring buffer, so adding a state (and dropping
+ * the oldest one) takes constant time.
+ *
  * @author Franklin Wei
  * @author Cole Spector
  */
@@ -32,8 +33,15 @@ public class StateList<T> {
    */
   public static final int DEFAULT_STATES_TO_KEEP = 10;
 
-  private Map<Integer, T> timeToState;
-  private int statesToKeep;
+  // initial capacity when keeping infinite states
+  private static final int INITIAL_CAPACITY = 4;
+
+  private final int statesToKeep;
+
+  // ring buffer: entry i (oldest first) is at (head + i) % capacity
+  private int times[];
+  private Object states[];
+  private int head, size;
 
   /**
    * Construct an empty StateList.
@@ -41,8 +49,10 @@ public class StateList<T> {
    * @param statesToKeep Number of states to keep, or INFINITE_STATES.
    */
   public StateList(int statesToKeep) {
-    timeToState = new TreeMap<>();
     this.statesToKeep = statesToKeep;
+    int capacity = statesToKeep == INFINITE_STATES ? INITIAL_CAPACITY : statesToKeep;
+    times = new int[capacity];
+    states = new Object[capacity];
   }
 
   /**
@@ -52,49 +62,20 @@ public class StateList<T> {
     this(DEFAULT_STATES_TO_KEEP);
   }
 
-  /**
-   * Checks that the keys in timeToState form a continuous integer
-   * range from [start .. end].
-   *
-   * Case 1: time <= statesToKeep
-   * [ time = 0, .. time_end < statesToKeep ]
-   *
-   * Case 2: time > statesToKeep
-   * [ time_end - statesToKeep + 1 .. time_end ]
-   */
-  private boolean checkIntegrity() {
-    Set<Integer> keySet = timeToState.keySet();
-
-    if(keySet.isEmpty())
-      return true; // empty list is a consistent state
-
-    int min = Collections.min(keySet);
-    int max = Collections.max(keySet);
-
-    /* times must be non-negative */
-    assert(min >= 0 && max >= 0);
-
-    /* ensure that times form a continuous range */
-    for(int i = min; i <= max; i++) {
-      if(!keySet.contains(i))
-        return false;
-    }
-
-    /*
-     * We know that the states held in this list span the continuous
-     * range of times from [ min, max ] -- but we don't know if this
-     * is the right range. Check that now:
-     */
-    int expectedMin = 0;
-
-    if(statesToKeep != INFINITE_STATES && max >= statesToKeep)
-      expectedMin = max - statesToKeep + 1;
-
-    return min == expectedMin;
+  // position in the ring buffer of the i-th oldest entry
+  private int slot(int i) {
+    int slot = head + i;
+    return slot < times.length ? slot : slot - times.length;
   }
 
-  private Set<Integer> getKeySet() {
-    return timeToState.keySet();
+  // index (oldest first) of the latest entry at or before `time', or
+  // -1 if there is none
+  private int find(int time) {
+    // lookups are almost always of one of the latest entries
+    for(int i = size - 1; i >= 0; i--)
+      if(times[slot(i)] <= time)
+        return i;
+    return -1;
   }
 
   /**
@@ -105,9 +86,9 @@ public class StateList<T> {
    * or -1 if the list is empty.
    */
   public int getLatestTime(){
-    if(getKeySet().isEmpty())
+    if(size == 0)
       return -1;
-    return Collections.max(getKeySet());
+    return times[slot(size - 1)];
   }
 
   /**
@@ -118,49 +99,61 @@ public class StateList<T> {
    * or -1 if the list is empty.
    */
   public int getOldestTime() {
-    if(getKeySet().isEmpty())
+    if(size == 0)
       return -1;
-    return Collections.min(getKeySet());
+    return times[head];
   }
 
   /**
-   * Returns the total number of states present in this list. Equal to
+   * Returns the total number of states present in this list. Since
+   * only changes need to be recorded, this is at most
    * getLatestTime() - getOldestTime() + 1.
    *
    * @return Number of states present.
    */
   public int statesPresent() {
-    int present = timeToState.size();
-
-    // check consistency
-    assert(present == getLatestTime() - getOldestTime() + 1);
-
-    return present;
-  }
-
-  private void deleteState(int time) {
-    timeToState.remove(time);
+    return size;
   }
 
   /**
-   * Add a new state associated with time `time`, which must be equal
-   * to getLatestTime() + 1 (which is zero if the list is empty)
+   * Add a new state associated with time `time`, which must be later
+   * than getLatestTime(). If the list is full, the oldest state is
+   * dropped.
    *
-   * @param time Time associated with state. Must be getLatestTime() +
-   * 1.
+   * @param time Time associated with state. Must be greater than
+   * getLatestTime().
    * @param state State to associate with this time.
    */
   public void addState(int time, T state) {
-    //System.out.printf("addState(%d), latest = %d\n", time, getLatestTime());
-    assert(time >= 0 && time == getLatestTime() + 1);
-
-    timeToState.put(time, state);
+    assert(time >= 0 && time > getLatestTime());
+
+    if(size == times.length) {
+      if(statesToKeep == INFINITE_STATES) {
+        grow();
+      } else {
+        // drop the oldest state
+        head = slot(1);
+        size--;
+      }
+    }
 
-    if(statesToKeep != INFINITE_STATES &&
-       statesPresent() > statesToKeep)
-      deleteState(getOldestTime());
+    int slot = slot(size);
+    times[slot] = time;
+    states[slot] = state;
+    size++;
+  }
 
-    assert(checkIntegrity());
+  // double the capacity of an INFINITE_STATES list, unrolling the ring
+  private void grow() {
+    int newTimes[] = new int[times.length * 2];
+    Object newStates[] = new Object[times.length * 2];
+    for(int i = 0; i < size; i++) {
+      newTimes[i] = times[slot(i)];
+      newStates[i] = states[slot(i)];
+    }
+    times = newTimes;
+    states = newStates;
+    head = 0;
   }
 
   /**
@@ -171,21 +164,26 @@ public class StateList<T> {
    * @param newState New state at time `time'.
    */
   public void setState(int time, T newState) {
-    assert(timeToState.containsKey(time));
+    int i = find(time);
+    assert(i >= 0 && times[slot(i)] == time);
 
-    timeToState.replace(time, newState);
+    states[slot(i)] = newState;
   }
 
   /**
-   * Retrieve a state associated with a time.
+   * Retrieve the state at a given time: the state associated with the
+   * latest time not after `time'.
    *
    * @param time Query time.
-   * @return State associated with time.
+   * @return State at that time, or null if it is before the oldest
+   * state present.
    */
+  @SuppressWarnings("unchecked")
   public T getState(int time) {
     assert(time >= 0);
 
-    return timeToState.get(time);
+    int i = find(time);
+    return i < 0 ? null : (T) states[slot(i)];
   }
 
   /**
@@ -194,15 +192,21 @@ public class StateList<T> {
    *
    * @return Latest state, or null if empty.
    */
+  @SuppressWarnings("unchecked")
   public T getLatestState() {
-    int latestTime = getLatestTime();
-    if(latestTime < 0)
+    if(size == 0)
       return null;
-    return timeToState.get(latestTime);
+    return (T) states[slot(size - 1)];
   }
 
   @Override
   public String toString() {
-    return timeToState.toString();
+    StringBuilder sb = new StringBuilder("{");
+    for(int i = 0; i < size; i++) {
+      if(i > 0)
+        sb.append(", ");
+      sb.append(times[slot(i)]).append('=').append(states[slot(i)]);
+    }
+    return sb.append('}').toString();
   }
 }
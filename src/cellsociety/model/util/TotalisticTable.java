@@ -0,0 +1,369 @@
+package cellsociety.model.util;
+
+import cellsociety.model.Region;
+
+/**
+ * A compiled outer-totalistic rule: a dense lookup table giving the
+ * next state of a cell from its current state and the number of its
+ * neighbors in each state.
+ *
+ * States are identified by their ordinals in [0, stateCount). Only
+ * some states need to be counted; the counts of those are packed into
+ * a single int, using one digit of radix (maxNeighbors + 1) per
+ * counted state. Since packing is linear, a cell's packed counts are
+ * simply the sum of getWeight() over its neighbors' states, and need
+ * no intermediate array:
+ *
+ * int packed = 0;
+ * for(Cell neighbor : neighbors)
+ *   packed += table.getWeight(ordinalOf(neighbor));
+ * int next = table.next(ordinalOf(cell), packed);
+ *
+ * A stochastic rule can be compiled too, if its randomness can be
+ * drawn up front (see RandomTransition): each cell then draws a
+ * "field" value every generation, and the table is looked up by state,
+ * field and packed counts. Rules compiled this way are only handed to
+ * engines which draw the field (see
+ * CellularAutomatonRule.getRandomTotalisticTable()).
+ *
+ * @author Franklin Wei
+ */
+public class TotalisticTable {
+  /**
+   * Definition of an outer-totalistic rule, to be compiled into a
+   * table.
+   */
+  public interface Transition {
+    /**
+     * Compute the next state of a cell.
+     *
+     * @param state Ordinal of the cell's current state.
+     * @param counts Number of neighbors in each state, indexed by
+     * ordinal. Uncounted states always have a count of zero.
+     * @return Ordinal of the cell's next state.
+     */
+    int next(int state, int counts[]);
+  }
+
+  /**
+   * Definition of an outer-totalistic rule which also depends on a
+   * random field value, drawn for each cell every generation from the
+   * cell's random numbers (see Neighborhood.getRandom()). The field
+   * must be drawn from the same numbers, in the same order, as the
+   * rule draws them when stepped cell by cell, so that both give the
+   * same result for the same seed.
+   */
+  public interface RandomTransition {
+    /**
+     * Retrieve the number of values the field can take.
+     *
+     * @param maxNeighbors Largest number of neighbors a cell may have.
+     * @return Field values are in [0, getFieldSize()).
+     */
+    int getFieldSize(int maxNeighbors);
+
+    /**
+     * Draw the field value of a cell.
+     *
+     * @param state Ordinal of the cell's current state.
+     * @param maxNeighbors Largest number of neighbors a cell may have.
+     * @param random The cell's random numbers for this generation.
+     * @return Field value in [0, getFieldSize(maxNeighbors)).
+     */
+    int draw(int state, int maxNeighbors, CounterRandom random);
+
+    /**
+     * Compute the next state of a cell.
+     *
+     * @param state Ordinal of the cell's current state.
+     * @param field The cell's field value.
+     * @param counts Number of neighbors in each state, indexed by
+     * ordinal. Uncounted states always have a count of zero.
+     * @return Ordinal of the cell's next state.
+     */
+    int next(int state, int field, int counts[]);
+  }
+
+  private final int stateCount, maxNeighbors, fieldSize, stride;
+  private final boolean counted[];
+  private final RandomTransition transition;
+  private final int weights[];
+  private final byte table[];
+
+  // next states by state and packed counts, with those which depend
+  // on the field deferred (see toIntArrayDeferringField()), or null
+  // for a deterministic rule
+  private final int deferred[];
+
+  /**
+   * Compile a rule into a table.
+   *
+   * @param stateCount Number of states, at most 128.
+   * @param counted For each state ordinal, whether neighbors in that
+   * state are counted.
+   * @param maxNeighbors Largest number of neighbors a cell may have.
+   * @param transition Rule to compile.
+   * @throws IllegalArgumentException if the table would be too large.
+   */
+  public TotalisticTable(int stateCount, boolean counted[], int maxNeighbors, Transition transition) {
+    this(stateCount, counted, maxNeighbors, new RandomTransition() {
+        @Override
+        public int getFieldSize(int maxNeighbors) {
+          return 1;
+        }
+
+        @Override
+        public int draw(int state, int maxNeighbors, CounterRandom random) {
+          return 0;
+        }
+
+        @Override
+        public int next(int state, int field, int counts[]) {
+          return transition.next(state, counts);
+        }
+      });
+  }
+
+  /**
+   * Compile a stochastic rule into a table.
+   *
+   * @param stateCount Number of states, at most 128.
+   * @param counted For each state ordinal, whether neighbors in that
+   * state are counted.
+   * @param maxNeighbors Largest number of neighbors a cell may have.
+   * @param transition Rule to compile.
+   * @throws IllegalArgumentException if the table would be too large.
+   */
+  public TotalisticTable(int stateCount, boolean counted[], int maxNeighbors, RandomTransition transition) {
+    if(stateCount < 1 || stateCount > Byte.MAX_VALUE + 1 || counted.length != stateCount || maxNeighbors < 0)
+      throw new IllegalArgumentException("invalid totalistic rule shape");
+
+    this.stateCount = stateCount;
+    this.maxNeighbors = maxNeighbors;
+    this.counted = counted.clone();
+    this.transition = transition;
+    fieldSize = transition.getFieldSize(maxNeighbors);
+    if(fieldSize < 1)
+      throw new IllegalArgumentException("invalid totalistic rule shape");
+
+    int radix = maxNeighbors + 1;
+    long size = 1;
+    weights = new int[stateCount];
+    for(int s = 0; s < stateCount; s++) {
+      if(counted[s]) {
+        weights[s] = (int) size;
+        size *= radix;
+        if(size * stateCount * fieldSize > Integer.MAX_VALUE)
+          throw new IllegalArgumentException("totalistic table too large");
+      }
+    }
+    stride = (int) size;
+
+    table = new byte[stateCount * fieldSize * stride];
+    int counts[] = new int[stateCount];
+    for(int packed = 0; packed < stride; packed++) {
+      for(int s = 0; s < stateCount; s++)
+        counts[s] = weights[s] == 0 ? 0 : packed / weights[s] % radix;
+
+      for(int key = 0; key < stateCount * fieldSize; key++) {
+        int next = transition.next(key / fieldSize, key % fieldSize, counts);
+        if(next < 0 || next >= stateCount)
+          throw new IllegalArgumentException("transition to invalid state " + next);
+        table[key * stride + packed] = (byte) next;
+      }
+    }
+
+    deferred = fieldSize == 1 ? null : deferField();
+  }
+
+  /**
+   * Retrieve the amount a neighbor in a given state adds to the
+   * packed neighbor counts.
+   *
+   * @param state State ordinal.
+   * @return Weight, or zero if the state is not counted.
+   */
+  public int getWeight(int state) {
+    return weights[state];
+  }
+
+  /**
+   * Pack a count of neighbors in a single state.
+   *
+   * @param state State ordinal.
+   * @param count Number of neighbors in that state.
+   * @return Packed counts.
+   */
+  public int pack(int state, int count) {
+    return weights[state] * count;
+  }
+
+  /**
+   * Retrieve the largest number of neighbors this table was compiled
+   * for.
+   *
+   * @return Maximum neighbor count.
+   */
+  public int getMaxNeighbors() {
+    return maxNeighbors;
+  }
+
+  /**
+   * Retrieve a table for the same rule which accepts at least
+   * `neighbors' neighbors.
+   *
+   * @param neighbors Required neighbor count.
+   * @return This table if it is large enough, else a new table.
+   */
+  public TotalisticTable withMaxNeighbors(int neighbors) {
+    if(neighbors <= maxNeighbors)
+      return this;
+    return new TotalisticTable(stateCount, counted, neighbors, transition);
+  }
+
+  /**
+   * Retrieve the number of states.
+   *
+   * @return State count.
+   */
+  public int getStateCount() {
+    return stateCount;
+  }
+
+  /**
+   * Retrieve the number of values the random field can take.
+   *
+   * @return Field size, which is 1 for a deterministic rule.
+   */
+  public int getFieldSize() {
+    return fieldSize;
+  }
+
+  /**
+   * Draw the field value of a cell.
+   *
+   * @param state Ordinal of the cell's current state.
+   * @param random The cell's random numbers for this generation.
+   * @return Field value in [0, getFieldSize()).
+   */
+  public int drawField(int state, CounterRandom random) {
+    return transition.draw(state, maxNeighbors, random);
+  }
+
+  /**
+   * Retrieve the number of distinct packed neighbor counts, i.e. the
+   * distance between the entries of consecutive keys (state *
+   * getFieldSize() + field) in the table.
+   *
+   * @return Table stride.
+   */
+  public int getStride() {
+    return stride;
+  }
+
+  /**
+   * Copy the table into an int array, indexed by (state *
+   * getFieldSize() + field) * getStride() + packed, for callers which
+   * look up many cells at once.
+   *
+   * @return Next state ordinals.
+   */
+  public int[] toIntArray() {
+    int out[] = new int[table.length];
+    for(int i = 0; i < table.length; i++)
+      out[i] = table[i];
+    return out;
+  }
+
+  /**
+   * Copy the table into an int array, indexed by state * getStride()
+   * + packed, for callers which look up many cells at once and draw
+   * fields only where they are needed. An entry holds the next state
+   * where it is the same whatever the field, and -1 - packed where it
+   * is not; the caller must then draw the cell's field and look it up
+   * with next(state, field, packed). For a deterministic rule, this
+   * is the same as toIntArray().
+   *
+   * @return Next state ordinals, or where they depend on the field,
+   * the packed counts to look them up with.
+   */
+  public int[] toIntArrayDeferringField() {
+    return deferred == null ? toIntArray() : deferred.clone();
+  }
+
+  private int[] deferField() {
+    int out[] = new int[stateCount * stride];
+    for(int state = 0; state < stateCount; state++) {
+      for(int packed = 0; packed < stride; packed++) {
+        int next = next(state, 0, packed);
+        for(int field = 1; field < fieldSize && next >= 0; field++)
+          if(next(state, field, packed) != next)
+            next = -1 - packed;
+        out[state * stride + packed] = next;
+      }
+    }
+    return out;
+  }
+
+  /**
+   * Look up the next state of a cell, whose field (if the rule is
+   * stochastic) is 0.
+   *
+   * @param state Ordinal of the cell's current state.
+   * @param packed Packed neighbor counts, of at most getMaxNeighbors()
+   * neighbors.
+   * @return Ordinal of the cell's next state.
+   */
+  public int next(int state, int packed) {
+    return table[state * fieldSize * stride + packed];
+  }
+
+  /**
+   * Look up the next state of a cell under a stochastic rule.
+   *
+   * @param state Ordinal of the cell's current state.
+   * @param field The cell's field value.
+   * @param packed Packed neighbor counts, of at most getMaxNeighbors()
+   * neighbors.
+   * @return Ordinal of the cell's next state.
+   */
+  public int next(int state, int field, int packed) {
+    return table[(state * fieldSize + field) * stride + packed];
+  }
+
+  /**
+   * Compute the next states of the cells of a region (see
+   * RegionKernel), which must have at most getMaxNeighbors()
+   * neighbors. Slots outside the grid weigh nothing.
+   *
+   * @param region Region to advance.
+   */
+  public void advanceRegion(Region region) {
+    byte source[] = region.getSource(), destination[] = region.getDestination();
+
+    // the outside ordinal is one past the last state
+    int stateWeights[] = new int[Math.max(stateCount, region.getOutside()) + 1];
+    System.arraycopy(weights, 0, stateWeights, 0, stateCount);
+
+    int width = region.getWidth();
+    for(int y = 0; y < region.getHeight(); y++) {
+      int offsets[] = region.getOffsets(y);
+      int start = region.getOrigin() + y * region.getStride();
+      for(int slot = start; slot < start + width; slot++) {
+        int packed = 0;
+        for(int offset : offsets)
+          packed += stateWeights[source[slot + offset]];
+        if(deferred == null) {
+          destination[slot] = table[source[slot] * stride + packed];
+          continue;
+        }
+
+        // cells only draw their field where it matters
+        int next = deferred[source[slot] * stride + packed];
+        if(next < 0)
+          next = next(source[slot], drawField(source[slot], region.getRandom(y, slot - start)), packed);
+        destination[slot] = (byte) next;
+      }
+    }
+  }
+}
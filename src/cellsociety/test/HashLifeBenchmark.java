@@ -0,0 +1,68 @@
+package cellsociety.test;
+
+import cellsociety.model.CellState;
+import cellsociety.model.CellularAutomaton;
+import cellsociety.model.engines.HashLife;
+import cellsociety.model.engines.Index;
+import cellsociety.model.grids.*;
+import cellsociety.model.rules.GameOfLifeRule;
+import cellsociety.model.states.GameOfLifeState;
+
+import java.util.*;
+
+/**
+ * Compares HashLife with generation-by-generation stepping, on an
+ * R-pentomino in the middle of a non-wrapping Game of Life grid: the
+ * grid is advanced by 2^k generations both ways, and the results must
+ * match. The grid must be large enough that nothing reaches its edge
+ * in that time, since HashLife simulates an unbounded plane (the
+ * defaults leave room to spare). Run with
+ *
+ * java --add-modules jdk.incubator.vector cellsociety.test.HashLifeBenchmark [size] [k]
+ */
+public class HashLifeBenchmark {
+  // live cells of the R-pentomino, as (x, y) pairs
+  private static final int R_PENTOMINO[][] = { { 1, 0 }, { 2, 0 }, { 0, 1 }, { 1, 1 }, { 1, 2 } };
+
+  private static RectangularCellGrid makeGrid(int size) {
+    CellState initialState[][] = new CellState[size][size];
+    for(CellState row[] : initialState)
+      Arrays.fill(row, CellState.valueOf(GameOfLifeState.class, "DEAD"));
+    for(int cell[] : R_PENTOMINO)
+      initialState[size / 2 + cell[1]][size / 2 + cell[0]] = CellState.valueOf(GameOfLifeState.class, "ALIVE");
+
+    RectangularCellGrid grid = new RectangularCellGrid(size, size, false, 8, true);
+    grid.appendStates(initialState);
+    return grid;
+  }
+
+  public static void main(String args[]) {
+    int size = args.length > 0 ? Integer.parseInt(args[0]) : 1024;
+    int k = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+    int generations = 1 << k;
+    Map<String, String> params = new HashMap<>();
+    params.put("rules", "B3/S23");
+    GameOfLifeRule rule = new GameOfLifeRule(params);
+
+    RectangularCellGrid stepped = makeGrid(size);
+    CellularAutomaton ca = new CellularAutomaton(stepped, rule);
+    ca.setEngine(Index.select(stepped, rule));
+    long start = System.nanoTime();
+    ca.step(generations);
+    double stepMillis = (System.nanoTime() - start) / 1e6;
+
+    RectangularCellGrid hashed = makeGrid(size);
+    start = System.nanoTime();
+    HashLife life = new HashLife(hashed, rule);
+    life.advance(k);
+    life.project(hashed);
+    double hashMillis = (System.nanoTime() - start) / 1e6;
+
+    boolean match = Arrays.deepEquals(stepped.extractStates(0), hashed.extractStates(0));
+    System.out.printf("%dx%d, %d generations: stepping %.1f ms, HashLife %.1f ms (%d nodes), %s\n",
+                      size, size, generations, stepMillis, hashMillis, life.getNodeCount(),
+                      match ? "results match" : "RESULTS DIFFER");
+    if(!match)
+      System.exit(1);
+  }
+}
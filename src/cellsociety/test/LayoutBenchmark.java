@@ -0,0 +1,78 @@
+package cellsociety.test;
+
+import cellsociety.model.CellState;
+import cellsociety.model.CellularAutomaton;
+import cellsociety.model.CellularAutomatonRule;
+import cellsociety.model.engines.Index;
+import cellsociety.model.grids.*;
+
+import java.util.*;
+
+/**
+ * Compares row-major and Z-order storage (see
+ * Dense2DCellGrid.setZOrder()) for every rule, on rectangular and
+ * hexagonal grids. Each simulation uses the storage and engine it
+ * would get from a configuration file. Run with
+ *
+ * java --add-modules jdk.incubator.vector cellsociety.test.LayoutBenchmark [size] [steps] [rule...]
+ *
+ * where the rules default to all of them.
+ */
+public class LayoutBenchmark {
+  private static CellularAutomaton make(String game, String gridType, int size, boolean zOrder, long seed)
+      throws Exception {
+    Random random = new Random(seed);
+    Class<? extends CellState> stateClass = cellsociety.model.states.Index.allStates.get(game);
+    List<String> names = new ArrayList<>(stateClass.getConstructor().newInstance().getAvailableStates());
+
+    CellState initialState[][] = new CellState[size][size];
+    for(int y = 0; y < size; y++)
+      for(int x = 0; x < size; x++)
+        initialState[y][x] = CellState.valueOf(stateClass, names.get(random.nextInt(names.size())));
+
+    boolean usePlanes = CellState.isEnumOnly(stateClass);
+    Dense2DCellGrid grid = gridType.equals("hexagonal") ?
+        new HexagonalCellGrid(size, size, true, usePlanes) :
+        new RectangularCellGrid(size, size, true, 8, usePlanes);
+    grid.setZOrder(zOrder);
+    grid.appendStates(initialState);
+
+    CellularAutomatonRule rule = (CellularAutomatonRule)
+        cellsociety.model.rules.Index.allRules.get(game).getConstructor(Map.class).newInstance(new HashMap<>());
+    CellularAutomaton ca = new CellularAutomaton(grid, rule);
+    ca.setEngine(Index.select(grid, rule));
+    return ca;
+  }
+
+  private static double time(CellularAutomaton ca, int steps) {
+    long start = System.nanoTime();
+    for(int i = 0; i < steps; i++)
+      ca.step();
+    return (System.nanoTime() - start) / 1e6 / steps;
+  }
+
+  public static void main(String args[]) throws Exception {
+    int size = args.length > 0 ? Integer.parseInt(args[0]) : 256;
+    int steps = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+    Set<String> games = new TreeSet<>(cellsociety.model.rules.Index.allRules.keySet());
+    if(args.length > 2)
+      games = new TreeSet<>(Arrays.asList(args).subList(2, args.length));
+
+    System.out.printf("%dx%d, %d steps\n", size, size, steps);
+
+    for(String game : games) {
+      for(String gridType : new String[] { "rectangular", "hexagonal" }) {
+        CellularAutomaton rowMajor = make(game, gridType, size, false, 1);
+        CellularAutomaton zOrder = make(game, gridType, size, true, 1);
+
+        // warm up
+        time(rowMajor, steps);
+        time(zOrder, steps);
+
+        System.out.printf("%-12s %-12s row-major %8.2f ms/step, Z-order %8.2f ms/step\n", game, gridType,
+                          time(rowMajor, steps), time(zOrder, steps));
+      }
+    }
+  }
+}
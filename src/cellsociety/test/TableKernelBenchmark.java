@@ -0,0 +1,78 @@
+package cellsociety.test;
+
+import cellsociety.model.CellState;
+import cellsociety.model.CellularAutomaton;
+import cellsociety.model.CellularAutomatonRule;
+import cellsociety.model.engines.PlaneTableEngine;
+import cellsociety.model.grids.*;
+
+import java.util.*;
+
+/**
+ * Compares the cell-by-cell step (block by block, for Fire) against
+ * PlaneTableEngine with its scalar and vectorized kernels. Run with
+ *
+ * java --add-modules jdk.incubator.vector cellsociety.test.TableKernelBenchmark [size] [steps]
+ *
+ * to enable the vectorized kernel; without the module, the
+ * "vector" runs fall back to the scalar kernel.
+ */
+public class TableKernelBenchmark {
+  private static final String games[] = { "rps", "percolation", "gameoflife", "fire" };
+
+  private static CellularAutomaton make(String game, int size, long seed) throws Exception {
+    Random random = new Random(seed);
+    Class<? extends CellState> stateClass = cellsociety.model.states.Index.allStates.get(game);
+    List<String> names = new ArrayList<>(stateClass.getConstructor().newInstance().getAvailableStates());
+
+    CellState initialState[][] = new CellState[size][size];
+    for(int y = 0; y < size; y++)
+      for(int x = 0; x < size; x++)
+        initialState[y][x] = CellState.valueOf(stateClass, names.get(random.nextInt(names.size())));
+
+    // a hexagonal grid keeps Game of Life off LifeBitEngine
+    Dense2DCellGrid grid = game.equals("gameoflife") ?
+        new HexagonalCellGrid(size, size, true, true) :
+        new RectangularCellGrid(size, size, true, 8, true);
+    grid.appendStates(initialState);
+
+    Map<String, String> params = new HashMap<>();
+    params.put("rules", "B2/S34");
+    CellularAutomatonRule rule = (CellularAutomatonRule)
+        cellsociety.model.rules.Index.allRules.get(game).getConstructor(Map.class).newInstance(params);
+    CellularAutomaton ca = new CellularAutomaton(grid, rule);
+    // Fire draws the same numbers however it is stepped
+    ca.setSeed(seed);
+    return ca;
+  }
+
+  private static double time(CellularAutomaton ca, int steps) {
+    long start = System.nanoTime();
+    for(int i = 0; i < steps; i++)
+      ca.step();
+    return (System.nanoTime() - start) / 1e6 / steps;
+  }
+
+  public static void main(String args[]) throws Exception {
+    int size = args.length > 0 ? Integer.parseInt(args[0]) : 512;
+    int steps = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+    System.out.printf("%dx%d, %d steps, vectorized kernel %savailable\n", size, size, steps,
+                      new PlaneTableEngine().isVectorized() ? "" : "NOT ");
+
+    for(String game : games) {
+      CellularAutomaton cells = make(game, size, 1);
+      CellularAutomaton scalar = make(game, size, 1);
+      CellularAutomaton vector = make(game, size, 1);
+      scalar.setEngine(new PlaneTableEngine(false));
+      vector.setEngine(new PlaneTableEngine(true));
+
+      // warm up
+      time(scalar, steps);
+      time(vector, steps);
+
+      System.out.printf("%-12s cells %8.2f ms/step, scalar %8.2f ms/step, vector %8.2f ms/step\n", game,
+                        time(cells, steps), time(scalar, steps), time(vector, steps));
+    }
+  }
+}
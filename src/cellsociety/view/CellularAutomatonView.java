@@ -35,11 +35,13 @@ public class CellularAutomatonView {
 
   public static final String LARGEFONT_CSS = "cellsociety/resources/largefont.css";
   public static final String NORMALFONT_CSS = "cellsociety/resources/normalfont.css";
+  public static final int FAST_FORWARD_GENERATIONS = 100;
 
   private GridPane masterLayout;
   private Button startResetButton;
   private Button pauseResumeButton;
   private Button stepButton;
+  private Button fastForwardButton;
   private Slider speedSlider;
   private Button applySpeedButton;
   private Button fontButton;
@@ -118,6 +120,9 @@ public class CellularAutomatonView {
     stepButton = new Button(bundle.getString("StepButtonLabel"));
     stepButton.setOnAction(e -> stepButtonClick());
     stepButton.getStyleClass().add("button-text");
+    fastForwardButton = new Button(bundle.getString("FastForwardButtonLabel"));
+    fastForwardButton.setOnAction(e -> fastForwardButtonClick());
+    fastForwardButton.getStyleClass().add("button-text");
     fontButton = new Button(bundle.getString("IncreaseFontButtonLabel"));
     fontButton.setOnAction(e -> fontButtonClick());
     fontButton.getStyleClass().add("button-text");
@@ -132,8 +137,8 @@ public class CellularAutomatonView {
     applySpeedButton.setOnAction(e -> speedButtonClick());
     applySpeedButton.getStyleClass().add("button-text");
 
-    controlsBox.getChildren().addAll(startResetButton, pauseResumeButton, stepButton, speedText,
-        speedSlider, applySpeedButton, fontButton, colorButton);
+    controlsBox.getChildren().addAll(startResetButton, pauseResumeButton, stepButton, fastForwardButton,
+        speedText, speedSlider, applySpeedButton, fontButton, colorButton);
     masterLayout.add(controlsBox,0,1, 3,1);
   }
 
@@ -252,6 +257,14 @@ public class CellularAutomatonView {
     updateButtonLabels();
   }
 
+  /**
+   * Used by SimulationView to stop controlling a simulation when it is deleted
+   * @param controller the controller of the deleted simulation
+   */
+  public void removeSimulation(CellularAutomatonController controller){
+    simulationControllers.remove(controller);
+  }
+
   private void pauseResumeButtonClick() {
     if(paused){
       for (CellularAutomatonController controller: simulationControllers) {
@@ -275,6 +288,15 @@ public class CellularAutomatonView {
     updateButtonLabels();
   }
 
+  private void fastForwardButtonClick() {
+    for (CellularAutomatonController controller: simulationControllers) {
+      controller.fastForward(FAST_FORWARD_GENERATIONS);
+    }
+    started = true;
+    paused = true;
+    updateButtonLabels();
+  }
+
   private void speedButtonClick() {
     for (CellularAutomatonController controller: simulationControllers) {
       controller.changeRateSlider((int) speedSlider.getValue());
@@ -111,11 +111,14 @@ public class SimulationView {
 
   private void deleteSimulation() {
     ((GridPane) masterLayout.getParent()).getChildren().remove(masterLayout);
+    parentView.removeSimulation(controller);
+    controller.close();
   }
 
   private void createGrid() {
     switch (config.getGridType()){
       case "rectangular":
+      case "sparse":
         mainGrid = new RectangularGridStyle(this, new GridPane());
         break;
       case "hexagonal":
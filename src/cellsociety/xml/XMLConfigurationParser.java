@@ -31,8 +31,17 @@ public class XMLConfigurationParser extends XMLGenericParser {
   private static final Set<String> SUPPORTED_SIMULATIONS = cellsociety.model.rules.Index.allRules.keySet();
   private static final Map<String, ArrayList<Integer>> SUPPORTED_GRIDS = Map.ofEntries(
       entry("rectangular", new ArrayList<>(Arrays.asList(4, 8))),
-      entry("hexagonal", new ArrayList<>(Arrays.asList(6)))
+      entry("hexagonal", new ArrayList<>(Arrays.asList(6))),
+      entry("sparse", new ArrayList<>(Arrays.asList(4, 8)))
   );
+  private static final List<String> SUPPORTED_STORAGE = new ArrayList<>(
+      Arrays.asList("cells", "planes", "offheap"));
+  private static final List<String> SUPPORTED_ORDER = new ArrayList<>(
+      Arrays.asList("rowmajor", "zorder"));
+  private static final List<String> SUPPORTED_STEPPING = new ArrayList<>(
+      Arrays.asList("full", "active"));
+
+  private Long seed;
 
   /**
    * Create parser for any XML file input
@@ -80,6 +89,72 @@ public class XMLConfigurationParser extends XMLGenericParser {
     }
   }
 
+  /**
+   * Returns number of threads the simulation should be stepped on, if specified
+   *
+   * @return - number of threads, or 1 if not specified
+   * @throws XMLException - if number is not an integer or is less than 1
+   */
+  public int getThreadCount() throws XMLException {
+    if (! root.hasAttribute("threads")) {
+      return 1;
+    }
+    int threadCount;
+    try {
+      threadCount = Integer.parseInt(getCurrentAttribute(root, "threads"));
+    } catch (NumberFormatException e) {
+      throw new XMLException(e, "Thread count must be an integer");
+    }
+    if (threadCount > 0) {
+      return threadCount;
+    } else {
+      throw new XMLException(new IllegalArgumentException(), "Thread count must be greater than 0");
+    }
+  }
+
+  /**
+   * Returns the seed of the simulation's random numbers, if specified; otherwise one drawn at
+   * random, the same on every call, so that a random initial distribution and the simulation
+   * agree on it
+   *
+   * @return - seed
+   * @throws XMLException - if seed is not an integer
+   */
+  public long getSeed() throws XMLException {
+    if (seed == null) {
+      if (! root.hasAttribute("seed")) {
+        seed = new Random().nextLong();
+      } else {
+        try {
+          seed = Long.parseLong(getCurrentAttribute(root, "seed"));
+        } catch (NumberFormatException e) {
+          throw new XMLException(e, "Seed must be an integer");
+        }
+      }
+    }
+    return seed;
+  }
+
+  /**
+   * Returns how the simulation should be stepped, if specified: either "full" (every cell is
+   * evaluated every generation) or "active" (only cells near the last generation's changes are)
+   *
+   * @return - "full" or "active", or "full" if not specified
+   * @throws XMLException - if the stepping attribute names an unsupported stepping mode
+   */
+  public String getStepping() throws XMLException {
+    if (! root.hasAttribute("stepping")) {
+      return "full";
+    }
+    String stepping = getCurrentAttribute(root, "stepping").toLowerCase();
+    if (SUPPORTED_STEPPING.contains(stepping)) {
+      return stepping;
+    } else {
+      throw new XMLException(new IllegalArgumentException(),
+          stepping + " is not a supported stepping mode");
+    }
+  }
+
   /**
    * Returns type of grid in configuration file, if supported
    *
@@ -167,6 +242,74 @@ public class XMLConfigurationParser extends XMLGenericParser {
     return Boolean.parseBoolean(getAttribute(root, "grid", "wrapping"));
   }
 
+  /**
+   * Returns the size of the square tiles that the grid's state planes are arranged in, if
+   * specified
+   *
+   * @return - tile size if specified, or 0 (the default padded planes) if not
+   * @throws XMLException - if the tile size is not a positive integer
+   */
+  public int getGridTileSize() throws XMLException {
+    Element gridElement = getElement(root, "grid");
+    if (! gridElement.hasAttribute("tilesize")) {
+      return 0;
+    }
+    int tileSize;
+    try {
+      tileSize = Integer.parseInt(getAttribute(root, "grid", "tilesize"));
+    } catch (NumberFormatException e) {
+      throw new XMLException(e, "Tile size must be an integer");
+    }
+    if (tileSize > 0) {
+      return tileSize;
+    } else {
+      throw new XMLException(new IllegalArgumentException(), "Tile size must be greater than 0");
+    }
+  }
+
+  /**
+   * Returns how the grid should store its cell states, if specified: "cells" (one Cell object
+   * per location), "planes" (flat arrays of state ordinals) or "offheap" (planes kept outside
+   * the Java heap)
+   *
+   * @return - "cells", "planes" or "offheap" if specified, or empty string if not
+   * @throws XMLException - if the storage attribute names an unsupported storage type
+   */
+  public String getGridStorage() throws XMLException {
+    Element gridElement = getElement(root, "grid");
+    if (! gridElement.hasAttribute("storage")) {
+      return "";
+    }
+    String gridStorage = getAttribute(root, "grid", "storage").toLowerCase();
+    if (SUPPORTED_STORAGE.contains(gridStorage)) {
+      return gridStorage;
+    } else {
+      throw new XMLException(new IllegalArgumentException(),
+          gridStorage + " is not a supported grid storage type");
+    }
+  }
+
+  /**
+   * Returns the order in which the grid should store and visit its cells, if specified: either
+   * "rowmajor" or "zorder"
+   *
+   * @return - "rowmajor" or "zorder" if specified, or empty string if not
+   * @throws XMLException - if the order attribute names an unsupported order
+   */
+  public String getGridOrder() throws XMLException {
+    Element gridElement = getElement(root, "grid");
+    if (! gridElement.hasAttribute("order")) {
+      return "";
+    }
+    String gridOrder = getAttribute(root, "grid", "order").toLowerCase();
+    if (SUPPORTED_ORDER.contains(gridOrder)) {
+      return gridOrder;
+    } else {
+      throw new XMLException(new IllegalArgumentException(),
+          gridOrder + " is not a supported grid order");
+    }
+  }
+
   /**
    * Generates initial configuration of states depending on format specified in configuration file
    * If no format specified or format is not supported, makes even distribution of states
@@ -215,7 +358,9 @@ public class XMLConfigurationParser extends XMLGenericParser {
   // randomly assigns a state to each cell location
   // uses distribution if specified in the XML file
   // otherwise splits evenly between the states
+  // the same seed gives the same assignment
   private List<List<String>> makeRandomTotalInitialStates() {
+    Random random = new Random(getSeed());
     List<List<String>> gridInitialStates = new ArrayList<>();
     List<String> possibleCellStates = getCellStates();
     if (root.getElementsByTagName("distribution").getLength() > 0) {
@@ -225,7 +370,7 @@ public class XMLConfigurationParser extends XMLGenericParser {
       ArrayList<String> rowInitialStates = new ArrayList<>();
       for (int col = 0; col < getGridWidth(); col++) {
         rowInitialStates
-            .add(possibleCellStates.get((int) (Math.random() * possibleCellStates.size())));
+            .add(possibleCellStates.get(random.nextInt(possibleCellStates.size())));
       }
       gridInitialStates.add(rowInitialStates);
     }